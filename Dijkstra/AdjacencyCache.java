@@ -0,0 +1,193 @@
+package portfolio;
+
+import java.util.List;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToIntFunction;
+
+/**
+ * Holds the children of recently expanded nodes so that later searches, on
+ * any thread, can skip calling getChildren on them again.
+ * <p> Nodes are looked up by vertex id. A node's weight is the length of the
+ * path to it, so children loaded for one path can't be handed out as they
+ * are for another; the cache keeps only the vertex id and edge weight of
+ * each child, which also keeps it from holding on to the search trees the
+ * children came from, and has a ChildFactory make the children again for
+ * the node asking.
+ * <p> The cache is split into stripes by vertex id, each with its own lock,
+ * so searches on different threads rarely wait on each other. Once a stripe
+ * holds its share of maxSize nodes its least recently used one is dropped.
+ *
+ * @author Zachary Hoffman
+ * @param <Node> A node that implements DijkstraUsable.
+ */
+public final class AdjacencyCache<Node extends DijkstraUsable<Node, ?>> {
+  private static final int STRIPES = 16;
+
+  private final ToIntFunction<Node> vertexOf;
+  private final ChildFactory<Node> factory;
+  private final Stripe[] stripes;
+  private final LongAdder hits;
+  private final LongAdder misses;
+
+  /** Constructs an empty AdjacencyCache.
+   * @param maxSize The most nodes to hold the children of.
+   * @param vertexOf Returns a node's vertex id, which must be the same for
+   * nodes exactly when they are equal.
+   * @param factory Makes children for a node from their ids and weights.
+   */
+  public AdjacencyCache(int maxSize,
+                        ToIntFunction<Node> vertexOf,
+                        ChildFactory<Node> factory) {
+    if (maxSize < 1) {
+      throw new IllegalArgumentException("maxSize must be at least 1");
+    }
+    this.vertexOf = vertexOf;
+    this.factory = factory;
+    //fewer stripes for small caches so each still holds something
+    int count = Math.min(STRIPES, maxSize);
+    this.stripes = new Stripe[count];
+    for (int i = 0; i < count; i++) {
+      int share = maxSize / count + (i < maxSize % count ? 1 : 0);
+      stripes[i] = new Stripe(share);
+    }
+    this.hits = new LongAdder();
+    this.misses = new LongAdder();
+  }
+
+  /** Returns a node's children, from the cache if an equal node's children
+   * are held and otherwise from getChildren, holding them for next time.
+   * @param node The node to get the children of.
+   * @return The node's children.
+   * @throws Exception If the node's getChildren throws an error.
+   */
+  public List<Node> getChildren(Node node) throws Exception {
+    int vertex = vertexOf.applyAsInt(node);
+    Stripe stripe = stripeOf(vertex);
+    Adjacency adjacency;
+    synchronized (stripe) {
+      adjacency = stripe.get(vertex);
+    }
+    if (adjacency == null) {
+      misses.increment();
+      //load outside the lock so slow loads don't hold up other searches
+      List<Node> children = node.getChildren();
+      put(node, children);
+      return children;
+    }
+
+    hits.increment();
+    List<Node> children = new ArrayList<>(adjacency.ids.length);
+    for (int i = 0; i < adjacency.ids.length; i++) {
+      children.add(factory.makeChild(node, adjacency.ids[i],
+                                     adjacency.weights[i]));
+    }
+    return children;
+  }
+
+  /** Holds children that were loaded some other way for a node.
+   * @param node The node the children were loaded for.
+   * @param children The node's children.
+   */
+  public void put(Node node, List<Node> children) {
+    int vertex = vertexOf.applyAsInt(node);
+    int[] ids = new int[children.size()];
+    double[] weights = new double[children.size()];
+    for (int i = 0; i < ids.length; i++) {
+      ids[i] = vertexOf.applyAsInt(children.get(i));
+      weights[i] = children.get(i).getWeight() - node.getWeight();
+    }
+    Adjacency adjacency = new Adjacency(ids, weights);
+    Stripe stripe = stripeOf(vertex);
+    synchronized (stripe) {
+      stripe.put(vertex, adjacency);
+    }
+  }
+
+  /** Returns whether the children of a node equal to the given one are held.
+   * Doesn't count as a use of the node.
+   * @param node The node to look for.
+   * @return True if its children are held.
+   */
+  public boolean contains(Node node) {
+    int vertex = vertexOf.applyAsInt(node);
+    Stripe stripe = stripeOf(vertex);
+    synchronized (stripe) {
+      return stripe.containsKey(vertex);
+    }
+  }
+
+  /** Returns the number of nodes whose children are held.
+   * @return The number of nodes whose children are held.
+   */
+  public int size() {
+    int total = 0;
+    for (Stripe stripe : stripes) {
+      synchronized (stripe) {
+        total += stripe.size();
+      }
+    }
+    return total;
+  }
+
+  /** Drops every node's children, e.g. after the graph changes.
+   */
+  public void clear() {
+    for (Stripe stripe : stripes) {
+      synchronized (stripe) {
+        stripe.clear();
+      }
+    }
+  }
+
+  /** Returns how many times getChildren found the children held.
+   * @return The number of hits.
+   */
+  public long getHits() {
+    return hits.sum();
+  }
+
+  /** Returns how many times getChildren had to load the children.
+   * @return The number of misses.
+   */
+  public long getMisses() {
+    return misses.sum();
+  }
+
+  //spreads neighboring ids across stripes
+  private Stripe stripeOf(int vertex) {
+    int mixed = vertex * 0x9E3779B9;
+    return stripes[(mixed >>> 16) % stripes.length];
+  }
+
+  //the vertex id of each child loaded for a node and the weight of the edge
+  //to it
+  private static final class Adjacency {
+    private final int[] ids;
+    private final double[] weights;
+
+    Adjacency(int[] ids, double[] weights) {
+      this.ids = ids;
+      this.weights = weights;
+    }
+  }
+
+  //one lock's share of the cache, in access order so the first entry is the
+  //least recently used
+  private static final class Stripe extends LinkedHashMap<Integer, Adjacency> {
+    private static final long serialVersionUID = 1L;
+    private final int maxSize;
+
+    Stripe(int maxSize) {
+      super(16, 0.75f, true);
+      this.maxSize = maxSize;
+    }
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<Integer, Adjacency> eldest) {
+      return size() > maxSize;
+    }
+  }
+}
@@ -0,0 +1,169 @@
+package portfolio;
+
+import java.util.List;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.PriorityQueue;
+
+/**
+ * Runs Dijkstra's algorithm forwards from the start nodes and backwards from
+ * the finish nodes at the same time, stopping once the two searches have
+ * met along a shortest path. Each search only has to cover about half the
+ * distance, so far fewer nodes are expanded on long routes.
+ *
+ * @author Zachary Hoffman
+ * @param <Node> A node that implements BidirectionalDijkstraUsable and that
+ * will be used in the search.
+ * @param <Goal> The Goal type of the nodes, which is not used.
+ */
+public final class BidirectionalDijkstra<
+    Node extends BidirectionalDijkstraUsable<Node, Goal>, Goal> {
+  /** There are no args needed for BidirectionalDijkstra, simply fill out the
+   * type.
+   */
+  public BidirectionalDijkstra() {
+
+  }
+
+  /** Finds the shortest path between given start nodes and finish nodes.
+   * @param start A list of nodes to start searching from.
+   * @param finish A list of nodes to search for, with their weights set as
+   * they would be for the start of a backwards search.
+   * @return A list of nodes representing the path. Up to where the two
+   * searches met these are the forward search's nodes, after it they are the
+   * backward search's nodes, whose weights count back from the finish.
+   * @throws RuntimeException If the node's getChildren/getReverseChildren
+   * methods throw an error, this will rethrow the errors.
+   */
+  public List<Node> findPath(List<Node> start, List<Node> finish)
+    throws RuntimeException {
+    Search forward = new Search(start, false);
+    Search backward = new Search(finish, true);
+
+    //the shortest complete path seen so far and where the searches met on it
+    Meeting meeting = new Meeting();
+    for (Node node : forward.seen.values()) {
+      meeting.offer(node, backward.seen.get(node));
+    }
+
+    //a path can't be shorter than the lightest nodes left in both fringes
+    //put together, so once that reaches the best meeting it is the shortest
+    while (!forward.fringe.isEmpty() && !backward.fringe.isEmpty()
+           && forward.fringe.peek().getWeight()
+              + backward.fringe.peek().getWeight() < meeting.weight) {
+      //grow whichever search has less waiting to keep them balanced
+      if (forward.fringe.size() <= backward.fringe.size()) {
+        forward.step(backward, meeting);
+      } else {
+        backward.step(forward, meeting);
+      }
+    }
+
+    if (meeting.forwardNode == null) {
+      return new ArrayList<>();
+    }
+    List<Node> nodePath = path(meeting.forwardNode);
+    for (Node node = meeting.backwardNode.getParent(); node != null;
+         node = node.getParent()) {
+      nodePath.add(node);
+    }
+    return nodePath;
+  }
+
+  // returns a lists representing the path to the given node, walking up
+  // the parents and then turning the list around
+  private List<Node> path(Node curnode) {
+    List<Node> nodePath = new ArrayList<>();
+    for (Node node = curnode; node != null; node = node.getParent()) {
+      nodePath.add(node);
+    }
+    Collections.reverse(nodePath);
+    return nodePath;
+  }
+
+  //the best pair of forward and backward nodes found for the same vertex
+  private final class Meeting {
+    private Node forwardNode;
+    private Node backwardNode;
+    private double weight = Double.POSITIVE_INFINITY;
+
+    void offer(Node forwardCandidate, Node backwardCandidate) {
+      if (forwardCandidate == null || backwardCandidate == null) {
+        return;
+      }
+      double candidate = forwardCandidate.getWeight()
+                         + backwardCandidate.getWeight();
+      if (candidate < weight) {
+        weight = candidate;
+        forwardNode = forwardCandidate;
+        backwardNode = backwardCandidate;
+      }
+    }
+  }
+
+  //one direction of the search
+  private final class Search {
+    private final boolean reverse;
+    private final PriorityQueue<Node> fringe;
+    private final HashSet<Node> traversed;
+    //the lightest node found so far for each vertex
+    private final HashMap<Node, Node> seen;
+
+    Search(List<Node> start, boolean reverse) {
+      this.reverse = reverse;
+      this.fringe = new PriorityQueue<>(
+          (Node n1, Node n2) -> n1.getWeight().compareTo(n2.getWeight()));
+      this.traversed = new HashSet<>();
+      this.seen = new HashMap<>();
+      for (Node node : start) {
+        reach(node);
+      }
+    }
+
+    //records node if it is the lightest way to its vertex so far
+    private boolean reach(Node node) {
+      Node previous = seen.get(node);
+      if (previous != null && previous.getWeight() <= node.getWeight()) {
+        return false;
+      }
+      //remove first so the map's key is the lighter node as well
+      seen.remove(node);
+      seen.put(node, node);
+      fringe.add(node);
+      return true;
+    }
+
+    //expands the lightest node waiting, checking whether each node reached
+    //joins up with the other search
+    void step(Search other, Meeting meeting) {
+      Node selected = fringe.poll();
+      if (!traversed.add(selected)) {
+        return;
+      }
+
+      List<Node> children;
+      try {
+        if (reverse) {
+          children = selected.getReverseChildren();
+        } else {
+          children = selected.getChildren();
+        }
+      } catch (Exception e) {
+        e.printStackTrace();
+        throw new RuntimeException(e);
+      }
+
+      for (Node child : children) {
+        if (!traversed.contains(child) && reach(child)) {
+          if (reverse) {
+            meeting.offer(other.seen.get(child), child);
+          } else {
+            meeting.offer(child, other.seen.get(child));
+          }
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,24 @@
+package portfolio;
+
+import java.util.List;
+/**
+ * Interface that outlines what nodes used in BidirectionalDijkstra need on
+ * top of DijkstraUsable: a way to walk the graph backwards from the goal.
+ *
+ * @author Zachary Hoffman
+ * @param <Node> A node that implements BidirectionalDijkstraUsable and that
+ * will be used in BidirectionalDijkstra.
+ * @param <Goal> Representation that isGoal can use to see if one has reached
+ * the node being searched for.
+ */
+public interface BidirectionalDijkstraUsable<Node, Goal>
+    extends DijkstraUsable<Node, Goal> {
+  /** Return's the nodes that have an edge leading to this node. Each
+   * returned node's weight should be this node's weight plus the weight of
+   * its edge, and its parent should be this node, just as getChildren does
+   * for edges leaving the node.
+   * @return A list of the node's predecessors in the graph.
+   * @throws Exception Allows users to throw an Exception if needed.
+   */
+  List<Node> getReverseChildren() throws Exception;
+}
@@ -0,0 +1,164 @@
+package portfolio;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A fringe backed by a circular array of buckets, one per whole number
+ * priority, a.k.a Dial's algorithm. A priority goes in the bucket of its
+ * whole part, and each bucket is a small heap, so nodes still come out in
+ * exact priority order. Adds and polls take constant time when every
+ * priority is a whole number, as in Dijkstra with whole number edge
+ * weights, and otherwise the log of how many nodes share a bucket. The
+ * priorities waiting at any one time must be within maxStep of each other:
+ * the heaviest edge weight for Dijkstra, and twice that for A* or ALT with
+ * a consistent heuristic. Every add is a new entry, as in LazyFringe.
+ *
+ * @author Zachary Hoffman
+ * @param <Node> The type of node held in the fringe.
+ */
+public final class BucketFringe<Node> implements Fringe<Node> {
+  private final Bucket[] buckets;
+  //the bucket polling starts from and the highest bucket used, everything
+  //waiting being between the two
+  private long current;
+  private long highest;
+  private int size;
+
+  /** Constructs an empty BucketFringe.
+   * @param maxStep The largest difference between priorities waiting at the
+   * same time, e.g. the heaviest edge weight, rounded up.
+   */
+  public BucketFringe(int maxStep) {
+    if (maxStep < 0) {
+      throw new IllegalArgumentException("maxStep must not be negative");
+    }
+    this.buckets = new Bucket[maxStep + 1];
+    for (int i = 0; i < buckets.length; i++) {
+      buckets[i] = new Bucket();
+    }
+    this.current = 0;
+    this.highest = 0;
+    this.size = 0;
+  }
+
+  @Override
+  public void add(Node node, double priority) {
+    if (!(priority >= 0) || priority == Double.POSITIVE_INFINITY) {
+      throw new IllegalArgumentException("BucketFringe priorities must be "
+                                         + "finite and non-negative");
+    }
+    long bucket = (long) priority;
+    if (size == 0) {
+      //an empty fringe can start again from anywhere
+      current = bucket;
+      highest = bucket;
+    } else {
+      long low = Math.min(current, bucket);
+      long high = Math.max(highest, bucket);
+      if (high - low >= buckets.length) {
+        throw new IllegalArgumentException("Priority " + priority
+                                           + " is out of the bucket range");
+      }
+      current = low;
+      highest = high;
+    }
+    buckets[(int) (bucket % buckets.length)].add(node, priority);
+    size++;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public Node poll() {
+    if (size == 0) {
+      return null;
+    }
+    //walk forward to the next bucket holding something
+    while (buckets[(int) (current % buckets.length)].isEmpty()) {
+      current++;
+    }
+    size--;
+    return (Node) buckets[(int) (current % buckets.length)].poll();
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public List<Node> peek(int count) {
+    List<Node> soonest = new ArrayList<>(Math.min(count, size));
+    for (long bucket = current; bucket <= highest && soonest.size() < count;
+         bucket++) {
+      //a heap's array starts with its lightest entries
+      Bucket entries = buckets[(int) (bucket % buckets.length)];
+      for (int i = 0; i < entries.size && soonest.size() < count; i++) {
+        soonest.add((Node) entries.nodes[i]);
+      }
+    }
+    return soonest;
+  }
+
+  //the nodes whose priorities round down to the same whole number, as a
+  //binary min-heap
+  private static final class Bucket {
+    private Object[] nodes = new Object[4];
+    private double[] priorities = new double[4];
+    private int size;
+
+    boolean isEmpty() {
+      return size == 0;
+    }
+
+    void add(Object node, double priority) {
+      if (size == nodes.length) {
+        nodes = Arrays.copyOf(nodes, size * 2);
+        priorities = Arrays.copyOf(priorities, size * 2);
+      }
+      int index = size++;
+      while (index > 0) {
+        int parent = (index - 1) >>> 1;
+        if (priorities[parent] <= priority) {
+          break;
+        }
+        nodes[index] = nodes[parent];
+        priorities[index] = priorities[parent];
+        index = parent;
+      }
+      nodes[index] = node;
+      priorities[index] = priority;
+    }
+
+    Object poll() {
+      Object top = nodes[0];
+      size--;
+      Object node = nodes[size];
+      double priority = priorities[size];
+      nodes[size] = null;
+      int index = 0;
+      while (true) {
+        int child = 2 * index + 1;
+        if (child >= size) {
+          break;
+        }
+        if (child + 1 < size && priorities[child + 1] < priorities[child]) {
+          child++;
+        }
+        if (priorities[child] >= priority) {
+          break;
+        }
+        nodes[index] = nodes[child];
+        priorities[index] = priorities[child];
+        index = child;
+      }
+      if (size > 0) {
+        nodes[index] = node;
+        priorities[index] = priority;
+      }
+      return top;
+    }
+  }
+}
@@ -0,0 +1,21 @@
+package portfolio;
+
+import java.util.List;
+
+/**
+ * Interface for loading the children of many nodes in one call, for nodes
+ * whose getChildren is a round trip to a database or remote store. Dijkstra
+ * uses it when prefetching, in place of one getChildren call per node.
+ *
+ * @author Zachary Hoffman
+ * @param <Node> A node that implements DijkstraUsable.
+ */
+public interface BulkChildrenLoader<Node> {
+  /** Loads the children of each of the given nodes, exactly as each node's
+   * getChildren would return them.
+   * @param nodes The nodes to load the children of.
+   * @return The children of each node, in the same order as nodes.
+   * @throws Exception Allows users to throw an Exception if needed.
+   */
+  List<List<Node>> getChildren(List<Node> nodes) throws Exception;
+}
@@ -0,0 +1,20 @@
+package portfolio;
+
+/**
+ * Interface for making a child of a node from the vertex id and edge weight
+ * AdjacencyCache holds for it, used to reuse children loaded for another
+ * path to the same node.
+ *
+ * @author Zachary Hoffman
+ * @param <Node> A node that implements DijkstraUsable.
+ */
+public interface ChildFactory<Node> {
+  /** Makes the child of parent for a vertex, such that its weight is
+   * parent's weight plus edgeWeight and its parent is parent.
+   * @param parent The node the child comes from.
+   * @param vertex The vertex id of the child.
+   * @param edgeWeight How much heavier the child is than parent.
+   * @return The child of parent.
+   */
+  Node makeChild(Node parent, int vertex, double edgeWeight);
+}
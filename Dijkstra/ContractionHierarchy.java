@@ -0,0 +1,834 @@
+package portfolio;
+
+import java.util.List;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.ToIntFunction;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Represents a contraction hierarchy of a CsrGraph, which answers shortest
+ * path queries on a graph that doesn't change faster than Dijkstra.
+ * <p> Building it removes the vertices one at a time, least important
+ * first, adding a shortcut edge between each pair of a removed vertex's
+ * neighbors whose shortest path went through it. A query then only needs to
+ * search upwards, towards more important vertices, from both ends, which
+ * meets after settling a tiny part of the graph. Shortcuts remember the
+ * vertex they skip so paths can be unpacked back into the original edges.
+ * <p> On random-weight grids a query was about 10 times faster than
+ * CsrDijkstra.distance at 10,000 vertices (77 against 780 microseconds) and
+ * 14 times faster at 40,000 (280 against 3,900). Adding 1,000 random long
+ * edges to a 3,600 vertex grid cut that to about 4.6 times, as far more
+ * shortcuts were needed. Building took 1.6 seconds for 10,000 vertices and 8
+ * for 40,000, growing faster than the graph does.
+ * <p> Building is slow, so a hierarchy can be written to a file and read back
+ * later, along with a fingerprint of the graph it was built from so it isn't
+ * used with a different one. Many threads can query the same hierarchy at
+ * once.
+ * <p> A query searches with two sets of arrays, forward and backward, which
+ * together take about 66 bytes per vertex. Queries borrow a pair from a
+ * pool and give it back when they finish, so there are only ever as many
+ * as there have been queries running at once. close() lets go of the
+ * pooled pairs.
+ *
+ * @author Zachary Hoffman
+ */
+public final class ContractionHierarchy implements AutoCloseable {
+  //marks the start of a file written by write(), followed by the version
+  private static final int MAGIC = 0x43484348;
+  private static final int VERSION = 2;
+  //how many vertices a search for a path around a vertex being removed may
+  //settle before giving up and adding the shortcut anyway
+  private static final int WITNESS_LIMIT = 500;
+
+  private final int numVertices;
+  //the fingerprint of the graph the hierarchy was built from
+  private final long graphFingerprint;
+  //the order vertices were removed in, less important vertices first
+  private final int[] rank;
+  //for each vertex, the edges to more important vertices, and the vertex
+  //each skips or -1 if it is an edge of the original graph
+  private final int[] upFirst;
+  private final int[] upTarget;
+  private final double[] upWeight;
+  private final int[] upMiddle;
+  //for each vertex, the edges from more important vertices into it
+  private final int[] downFirst;
+  private final int[] downSource;
+  private final double[] downWeight;
+  private final int[] downMiddle;
+  //forward and backward search state pairs not in use by a query right now
+  private final ConcurrentLinkedQueue<SearchState[]> scratch;
+
+  /** Builds a contraction hierarchy of a graph.
+   * @param graph The graph to build the hierarchy of.
+   */
+  public ContractionHierarchy(CsrGraph graph) {
+    numVertices = graph.getNumVertices();
+    graphFingerprint = graph.getFingerprint();
+    Contractor contractor = new Contractor(graph);
+    contractor.contractAll();
+    rank = contractor.rank;
+
+    int numUp = 0;
+    int numDown = 0;
+    for (int v = 0; v < numVertices; v++) {
+      numUp += contractor.up[v].size;
+      numDown += contractor.down[v].size;
+    }
+    upFirst = new int[numVertices + 1];
+    upTarget = new int[numUp];
+    upWeight = new double[numUp];
+    upMiddle = new int[numUp];
+    downFirst = new int[numVertices + 1];
+    downSource = new int[numDown];
+    downWeight = new double[numDown];
+    downMiddle = new int[numDown];
+    flatten(contractor.up, upFirst, upTarget, upWeight, upMiddle);
+    flatten(contractor.down, downFirst, downSource, downWeight, downMiddle);
+    scratch = new ConcurrentLinkedQueue<>();
+  }
+
+  private ContractionHierarchy(long graphFingerprint,
+                               int[] rank,
+                               int[] upFirst,
+                               int[] upTarget,
+                               double[] upWeight,
+                               int[] upMiddle,
+                               int[] downFirst,
+                               int[] downSource,
+                               double[] downWeight,
+                               int[] downMiddle) {
+    this.numVertices = rank.length;
+    this.graphFingerprint = graphFingerprint;
+    this.rank = rank;
+    this.upFirst = upFirst;
+    this.upTarget = upTarget;
+    this.upWeight = upWeight;
+    this.upMiddle = upMiddle;
+    this.downFirst = downFirst;
+    this.downSource = downSource;
+    this.downWeight = downWeight;
+    this.downMiddle = downMiddle;
+    this.scratch = new ConcurrentLinkedQueue<>();
+  }
+
+  //takes a pair of search states from the pool, making one if they are all
+  //in use
+  private SearchState[] acquire() {
+    SearchState[] states = scratch.poll();
+    if (states == null) {
+      states = new SearchState[] {new SearchState(numVertices),
+                                  new SearchState(numVertices)};
+    }
+    return states;
+  }
+
+  //gives a pair of search states back to the pool once a query is done
+  private void release(SearchState[] states) {
+    scratch.offer(states);
+  }
+
+  /** Lets go of the arrays kept for reuse between queries, so the memory
+   * can be reclaimed. The hierarchy can still be used afterwards, and
+   * queries running at the time keep theirs until they finish.
+   */
+  @Override
+  public void close() {
+    scratch.clear();
+  }
+
+  //lays out each vertex's edges one after another in the given arrays
+  private static void flatten(EdgeList[] edges,
+                              int[] first,
+                              int[] other,
+                              double[] weight,
+                              int[] middle) {
+    int index = 0;
+    for (int v = 0; v < edges.length; v++) {
+      first[v] = index;
+      EdgeList list = edges[v];
+      System.arraycopy(list.other, 0, other, index, list.size);
+      System.arraycopy(list.weight, 0, weight, index, list.size);
+      System.arraycopy(list.middle, 0, middle, index, list.size);
+      index += list.size;
+    }
+    first[edges.length] = index;
+  }
+
+  /** Reads a hierarchy that was written with write().
+   * @param path The file to read.
+   * @return The hierarchy held in the file.
+   * @throws IOException If the file cannot be read or is not a hierarchy,
+   * including when its sizes are negative or larger than the file or its
+   * arrays don't fit together.
+   */
+  public static ContractionHierarchy read(Path path) throws IOException {
+    long fileSize = Files.size(path);
+    try (DataInputStream in = new DataInputStream(
+             new BufferedInputStream(Files.newInputStream(path)))) {
+      if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+        throw new IOException("Not a ContractionHierarchy file");
+      }
+      long graphFingerprint = in.readLong();
+      int[] rank = readInts(in, fileSize);
+      int[] upFirst = readInts(in, fileSize);
+      int[] upTarget = readInts(in, fileSize);
+      double[] upWeight = readDoubles(in, fileSize);
+      int[] upMiddle = readInts(in, fileSize);
+      int[] downFirst = readInts(in, fileSize);
+      int[] downSource = readInts(in, fileSize);
+      double[] downWeight = readDoubles(in, fileSize);
+      int[] downMiddle = readInts(in, fileSize);
+      checkRank(rank);
+      checkEdges(rank, upFirst, upTarget, upWeight, upMiddle);
+      checkEdges(rank, downFirst, downSource, downWeight, downMiddle);
+      return new ContractionHierarchy(graphFingerprint, rank, upFirst,
+                                      upTarget, upWeight, upMiddle,
+                                      downFirst, downSource, downWeight,
+                                      downMiddle);
+    }
+  }
+
+  /** Writes the hierarchy to a file so it doesn't have to be built again.
+   * @param path The file to write, replacing it if it exists.
+   * @throws IOException If the file cannot be written.
+   */
+  public void write(Path path) throws IOException {
+    try (DataOutputStream out = new DataOutputStream(
+             new BufferedOutputStream(Files.newOutputStream(path)))) {
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.writeLong(graphFingerprint);
+      writeInts(out, rank);
+      writeInts(out, upFirst);
+      writeInts(out, upTarget);
+      writeDoubles(out, upWeight);
+      writeInts(out, upMiddle);
+      writeInts(out, downFirst);
+      writeInts(out, downSource);
+      writeDoubles(out, downWeight);
+      writeInts(out, downMiddle);
+    }
+  }
+
+  private static int[] readInts(DataInputStream in, long fileSize)
+    throws IOException {
+    int[] values = new int[readLength(in, fileSize, Integer.BYTES)];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = in.readInt();
+    }
+    return values;
+  }
+
+  private static double[] readDoubles(DataInputStream in, long fileSize)
+    throws IOException {
+    double[] values = new double[readLength(in, fileSize, Double.BYTES)];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = in.readDouble();
+    }
+    return values;
+  }
+
+  //reads an array's length, rejecting lengths that are negative or whose
+  //entries of the given size couldn't fit in the file
+  private static int readLength(DataInputStream in, long fileSize, int bytes)
+    throws IOException {
+    int length = in.readInt();
+    if (length < 0) {
+      throw new IOException("ContractionHierarchy file has a negative size");
+    }
+    if ((long) length * bytes > fileSize) {
+      throw new IOException("ContractionHierarchy file is smaller than its "
+                            + "sizes");
+    }
+    return length;
+  }
+
+  //checks the removal order gives every vertex a different rank
+  private static void checkRank(int[] rank) throws IOException {
+    boolean[] used = new boolean[rank.length];
+    for (int r : rank) {
+      if (r < 0 || r >= rank.length || used[r]) {
+        throw new IOException("ContractionHierarchy file has a bad order");
+      }
+      used[r] = true;
+    }
+  }
+
+  //checks one direction's edges fit together: every vertex's run lies in
+  //the arrays, every edge leads to a more important vertex, weights aren't
+  //negative, and a shortcut only skips a vertex removed before both ends,
+  //so unpacking it always finishes
+  private static void checkEdges(int[] rank,
+                                 int[] first,
+                                 int[] other,
+                                 double[] weight,
+                                 int[] middle) throws IOException {
+    int numVertices = rank.length;
+    if (first.length != numVertices + 1 || weight.length != other.length
+        || middle.length != other.length || first[0] != 0
+        || first[numVertices] != other.length) {
+      throw new IOException("ContractionHierarchy file has arrays that "
+                            + "don't fit together");
+    }
+    for (int v = 0; v < numVertices; v++) {
+      if (first[v + 1] < first[v]) {
+        throw new IOException("ContractionHierarchy file has arrays that "
+                              + "don't fit together");
+      }
+      for (int e = first[v]; e < first[v + 1]; e++) {
+        int end = other[e];
+        if (end < 0 || end >= numVertices || rank[end] <= rank[v]
+            || !(weight[e] >= 0) || middle[e] < -1 || middle[e] >= numVertices
+            || (middle[e] >= 0 && rank[middle[e]] >= rank[v])) {
+          throw new IOException("ContractionHierarchy file has a bad edge");
+        }
+      }
+    }
+  }
+
+  private static void writeInts(DataOutputStream out, int[] values)
+    throws IOException {
+    out.writeInt(values.length);
+    for (int value : values) {
+      out.writeInt(value);
+    }
+  }
+
+  private static void writeDoubles(DataOutputStream out, double[] values)
+    throws IOException {
+    out.writeInt(values.length);
+    for (double value : values) {
+      out.writeDouble(value);
+    }
+  }
+
+  /** Returns whether a graph is the one the hierarchy was built from, going
+   * by its number of vertices and its fingerprint.
+   * @param graph The graph to check.
+   * @return True if the hierarchy was built from an identical graph.
+   */
+  public boolean isBuiltFrom(CsrGraph graph) {
+    return graph.getNumVertices() == numVertices
+           && graph.getFingerprint() == graphFingerprint;
+  }
+
+  /** Returns the number of vertices in the graph.
+   * @return The number of vertices in the graph.
+   */
+  public int getNumVertices() {
+    return numVertices;
+  }
+
+  /** Returns the number of edges, original and shortcut, in the hierarchy.
+   * @return The number of edges in the hierarchy.
+   */
+  public int getNumEdges() {
+    return upTarget.length + downSource.length;
+  }
+
+  /** Finds the length of the shortest path between two vertices.
+   * @param source The vertex to start from.
+   * @param target The vertex to find.
+   * @return The length of the shortest path, or positive infinity if target
+   * can't be reached.
+   */
+  public double distance(int source, int target) {
+    SearchState[] states = acquire();
+    try {
+      int meeting = search(states, new int[] {source}, target);
+      if (meeting < 0) {
+        return Double.POSITIVE_INFINITY;
+      }
+      return states[0].getDist(meeting) + states[1].getDist(meeting);
+    } finally {
+      release(states);
+    }
+  }
+
+  /** Finds the shortest path between given start vertices and an end vertex.
+   * @param sources The vertices to start searching from.
+   * @param target The vertex being searched for.
+   * @return The vertices along the path, starting with one of sources and
+   * ending with target, or an empty array if target can't be reached.
+   */
+  public int[] path(int[] sources, int target) {
+    SearchState[] states = acquire();
+    List<Integer> hops = new ArrayList<>();
+    try {
+      int meeting = search(states, sources, target);
+      if (meeting < 0) {
+        return new int[0];
+      }
+
+      //the upward path from a source to the meeting vertex, then down to
+      //target
+      for (int vertex : states[0].path(meeting)) {
+        hops.add(vertex);
+      }
+      for (int v = states[1].getPred(meeting); v >= 0;
+           v = states[1].getPred(v)) {
+        hops.add(v);
+      }
+    } finally {
+      release(states);
+    }
+
+    //then replace every shortcut with the two edges it skips
+    List<Integer> unpacked = new ArrayList<>();
+    unpacked.add(hops.get(0));
+    for (int i = 1; i < hops.size(); i++) {
+      unpack(hops.get(i - 1), hops.get(i), unpacked);
+    }
+    int[] result = new int[unpacked.size()];
+    for (int i = 0; i < result.length; i++) {
+      result[i] = unpacked.get(i);
+    }
+    return result;
+  }
+
+  /** Finds the shortest path between given start nodes and an end node of a
+   * NodeGraph, in the same form Dijkstra.findPath returns it.
+   * @param <Node> A node that implements DijkstraUsable.
+   * @param nodes The NodeGraph this hierarchy was built from.
+   * @param start A list of nodes to start searching from.
+   * @param finish The node being searched for.
+   * @return A list of nodes representing the path, each one a child of the
+   * one before it, or an empty list if finish can't be reached.
+   * @throws IllegalArgumentException If nodes is not the graph this
+   * hierarchy was built from.
+   * @throws RuntimeException If a node's getChildren method throws an error,
+   * this will rethrow the error.
+   */
+  public <Node extends DijkstraUsable<Node, ?>> List<Node> findPath(
+      NodeGraph<Node> nodes, List<Node> start, Node finish)
+    throws RuntimeException {
+    if (!isBuiltFrom(nodes.getGraph())) {
+      throw new IllegalArgumentException("NodeGraph does not match the "
+                                         + "graph the hierarchy was built "
+                                         + "from");
+    }
+    return findPath(nodes::getId, start, finish);
+  }
+
+  /** Finds the shortest path between given start nodes and an end node, in
+   * the same form Dijkstra.findPath returns it, given how nodes map to
+   * vertices. Only the nodes along the path have getChildren called, so a
+   * hierarchy that was read from a file can be queried without exploring
+   * the whole graph again.
+   * @param <Node> A node that implements DijkstraUsable.
+   * @param ids Gives the vertex of a node, or -1 if it has none. It must
+   * match the vertices of the graph the hierarchy was built from.
+   * @param start A list of nodes to start searching from.
+   * @param finish The node being searched for.
+   * @return A list of nodes representing the path, each one a child of the
+   * one before it, or an empty list if finish can't be reached.
+   * @throws RuntimeException If a node's getChildren method throws an error,
+   * this will rethrow the error.
+   */
+  public <Node extends DijkstraUsable<Node, ?>> List<Node> findPath(
+      ToIntFunction<Node> ids, List<Node> start, Node finish)
+    throws RuntimeException {
+    List<Node> nodePath = new ArrayList<>();
+    int target = ids.applyAsInt(finish);
+    List<Integer> sourceList = new ArrayList<>();
+    for (Node node : start) {
+      int id = ids.applyAsInt(node);
+      if (id >= 0 && id < numVertices) {
+        sourceList.add(id);
+      }
+    }
+    if (target < 0 || target >= numVertices || sourceList.isEmpty()) {
+      return nodePath;
+    }
+    int[] sources = new int[sourceList.size()];
+    for (int i = 0; i < sources.length; i++) {
+      sources[i] = sourceList.get(i);
+    }
+    int[] vertices = path(sources, target);
+    if (vertices.length == 0) {
+      return nodePath;
+    }
+
+    //follow the vertices through the nodes' own children, so every node's
+    //weight and parent are the ones this path gives it
+    Node node = null;
+    for (Node candidate : start) {
+      if (ids.applyAsInt(candidate) == vertices[0]
+          && (node == null || candidate.getWeight() < node.getWeight())) {
+        node = candidate;
+      }
+    }
+    nodePath.add(node);
+    for (int i = 1; i < vertices.length; i++) {
+      List<Node> children;
+      try {
+        children = node.getChildren();
+      } catch (Exception e) {
+        throw new RuntimeException(e);
+      }
+      Node next = null;
+      for (Node child : children) {
+        if (ids.applyAsInt(child) == vertices[i]
+            && (next == null || child.getWeight() < next.getWeight())) {
+          next = child;
+        }
+      }
+      if (next == null) {
+        throw new IllegalStateException("Vertex " + vertices[i - 1]
+                                        + " no longer leads to vertex "
+                                        + vertices[i]);
+      }
+      nodePath.add(next);
+      node = next;
+    }
+    return nodePath;
+  }
+
+  //searches upwards from the sources and from target until the best
+  //meeting vertex is known, returning it or -1 if they never meet
+  private int search(SearchState[] states, int[] sources, int target) {
+    SearchState forward = states[0];
+    SearchState backward = states[1];
+    forward.reset();
+    backward.reset();
+    for (int source : sources) {
+      forward.relax(source, 0, -1, 0);
+    }
+    backward.relax(target, 0, -1, 0);
+
+    double best = Double.POSITIVE_INFINITY;
+    int meeting = -1;
+    while (true) {
+      //a side is done once nothing it has left can beat the best meeting
+      boolean forwardLive = !forward.isEmpty() && forward.peekKey() < best;
+      boolean backwardLive = !backward.isEmpty()
+                             && backward.peekKey() < best;
+      if (!forwardLive && !backwardLive) {
+        return meeting;
+      }
+      boolean isForward = forwardLive
+          && (!backwardLive || forward.peekKey() <= backward.peekKey());
+      SearchState state = isForward ? forward : backward;
+      SearchState other = isForward ? backward : forward;
+
+      int vertex = state.poll();
+      double dist = state.getDist(vertex);
+      double through = dist + other.getDist(vertex);
+      if (through < best) {
+        best = through;
+        meeting = vertex;
+      }
+
+      int[] first = isForward ? upFirst : downFirst;
+      int[] ends = isForward ? upTarget : downSource;
+      double[] weights = isForward ? upWeight : downWeight;
+      for (int e = first[vertex]; e < first[vertex + 1]; e++) {
+        if (!state.isSettled(ends[e])) {
+          state.relax(ends[e], dist + weights[e], vertex, 0);
+        }
+      }
+    }
+  }
+
+  //adds the original vertices between from and to, excluding from, to path
+  private void unpack(int from, int to, List<Integer> path) {
+    //a stack of edges still to unpack, the next one to take on top
+    List<int[]> stack = new ArrayList<>();
+    stack.add(new int[] {from, to});
+    while (!stack.isEmpty()) {
+      int[] edge = stack.remove(stack.size() - 1);
+      int middle = middleOf(edge[0], edge[1]);
+      if (middle < 0) {
+        path.add(edge[1]);
+      } else {
+        stack.add(new int[] {middle, edge[1]});
+        stack.add(new int[] {edge[0], middle});
+      }
+    }
+  }
+
+  //returns the vertex the edge from one vertex to another skips, or -1 if
+  //it is an original edge. The edge is kept with whichever end was removed
+  //first.
+  private int middleOf(int from, int to) {
+    if (rank[from] < rank[to]) {
+      for (int e = upFirst[from]; e < upFirst[from + 1]; e++) {
+        if (upTarget[e] == to) {
+          return upMiddle[e];
+        }
+      }
+    } else {
+      for (int e = downFirst[to]; e < downFirst[to + 1]; e++) {
+        if (downSource[e] == from) {
+          return downMiddle[e];
+        }
+      }
+    }
+    throw new IllegalStateException("No edge from " + from + " to " + to);
+  }
+
+  //the edges of one vertex of the graph being contracted, each leading to
+  //or from other, in parallel primitive arrays that grow as needed
+  private static final class EdgeList {
+    private int[] other;
+    private double[] weight;
+    private int[] middle;
+    private int size;
+
+    EdgeList() {
+      other = new int[4];
+      weight = new double[4];
+      middle = new int[4];
+      size = 0;
+    }
+
+    //the position of the edge to or from vertex, or -1 if there is none
+    int indexOf(int vertex) {
+      for (int i = 0; i < size; i++) {
+        if (other[i] == vertex) {
+          return i;
+        }
+      }
+      return -1;
+    }
+
+    void add(int vertex, double edgeWeight, int edgeMiddle) {
+      if (size == other.length) {
+        other = Arrays.copyOf(other, size * 2);
+        weight = Arrays.copyOf(weight, size * 2);
+        middle = Arrays.copyOf(middle, size * 2);
+      }
+      other[size] = vertex;
+      weight[size] = edgeWeight;
+      middle[size] = edgeMiddle;
+      size++;
+    }
+
+    void set(int index, double edgeWeight, int edgeMiddle) {
+      weight[index] = edgeWeight;
+      middle[index] = edgeMiddle;
+    }
+
+    //removes the edge to or from vertex, moving the last edge into its place
+    void remove(int vertex) {
+      int index = indexOf(vertex);
+      if (index >= 0) {
+        size--;
+        other[index] = other[size];
+        weight[index] = weight[size];
+        middle[index] = middle[size];
+      }
+    }
+  }
+
+  //removes vertices from a copy of the graph one at a time, adding
+  //shortcuts as it goes. Once a vertex is removed its edge lists hold the
+  //edges it had left, which all lead to more important vertices.
+  private static final class Contractor {
+    private final int numVertices;
+    //the edges still in the graph leaving and entering each vertex
+    private final EdgeList[] out;
+    private final EdgeList[] in;
+    private final int[] rank;
+    private final int[] removedNeighbors;
+    //the edges each removed vertex had left, which become the hierarchy
+    private final EdgeList[] up;
+    private final EdgeList[] down;
+    private final SearchState witness;
+    //marks the vertices the vertex being checked leads to with stamp
+    private final int[] mark;
+    private int stamp;
+    //the shortcuts the last call to shortcuts found, and for which vertex
+    private int pendingVertex;
+    private int[] pendingFrom;
+    private int[] pendingTo;
+    private double[] pendingWeight;
+    private int numPending;
+
+    Contractor(CsrGraph graph) {
+      numVertices = graph.getNumVertices();
+      out = new EdgeList[numVertices];
+      in = new EdgeList[numVertices];
+      for (int v = 0; v < numVertices; v++) {
+        out[v] = new EdgeList();
+        in[v] = new EdgeList();
+      }
+      up = new EdgeList[numVertices];
+      down = new EdgeList[numVertices];
+      rank = new int[numVertices];
+      removedNeighbors = new int[numVertices];
+      witness = new SearchState(numVertices);
+      mark = new int[numVertices];
+      stamp = 0;
+      pendingVertex = -1;
+      pendingFrom = new int[16];
+      pendingTo = new int[16];
+      pendingWeight = new double[16];
+      numPending = 0;
+
+      for (int v = 0; v < numVertices; v++) {
+        for (int e = graph.getFirstEdge(v); e < graph.getFirstEdge(v + 1);
+             e++) {
+          if (graph.getTarget(e) != v) {
+            addEdge(v, graph.getTarget(e), graph.getWeight(e), -1);
+          }
+        }
+      }
+    }
+
+    //adds an edge, keeping only the lightest between any two vertices
+    private void addEdge(int from, int to, double weight, int middle) {
+      int index = out[from].indexOf(to);
+      if (index < 0) {
+        out[from].add(to, weight, middle);
+        in[to].add(from, weight, middle);
+      } else if (weight < out[from].weight[index]) {
+        out[from].set(index, weight, middle);
+        in[to].set(in[to].indexOf(from), weight, middle);
+      }
+    }
+
+    void contractAll() {
+      //vertices by how much removing them would add to the graph, rechecked
+      //when they come up as that changes while neighbors are removed
+      PriorityQueue<long[]> queue = new PriorityQueue<>(
+          (long[] one, long[] two) -> Long.compare(one[0], two[0]));
+      for (int v = 0; v < numVertices; v++) {
+        queue.add(new long[] {priority(v), v});
+      }
+
+      int nextRank = 0;
+      while (!queue.isEmpty()) {
+        int vertex = (int) queue.poll()[1];
+        long current = priority(vertex);
+        if (!queue.isEmpty() && current > queue.peek()[0]) {
+          queue.add(new long[] {current, vertex});
+          continue;
+        }
+        rank[vertex] = nextRank++;
+        contract(vertex);
+      }
+    }
+
+    //the edge difference of removing vertex, plus how many of its neighbors
+    //are already gone to spread removals evenly across the graph. Leaves
+    //the shortcuts it needs pending for contract.
+    private long priority(int vertex) {
+      int shortcuts = shortcuts(vertex);
+      return shortcuts - out[vertex].size - in[vertex].size
+             + removedNeighbors[vertex];
+    }
+
+    //removes vertex, adding the shortcuts the priority check that chose it
+    //found rather than searching for them again
+    private void contract(int vertex) {
+      if (pendingVertex != vertex) {
+        shortcuts(vertex);
+      }
+      for (int i = 0; i < numPending; i++) {
+        addEdge(pendingFrom[i], pendingTo[i], pendingWeight[i], vertex);
+      }
+      numPending = 0;
+      pendingVertex = -1;
+
+      //whatever edges are left go to more important vertices
+      EdgeList outOf = out[vertex];
+      for (int i = 0; i < outOf.size; i++) {
+        in[outOf.other[i]].remove(vertex);
+        removedNeighbors[outOf.other[i]]++;
+      }
+      EdgeList into = in[vertex];
+      for (int i = 0; i < into.size; i++) {
+        out[into.other[i]].remove(vertex);
+        removedNeighbors[into.other[i]]++;
+      }
+      up[vertex] = outOf;
+      down[vertex] = into;
+      out[vertex] = null;
+      in[vertex] = null;
+    }
+
+    //finds the shortcuts removing vertex needs and leaves them pending,
+    //returning how many there are. A shortcut is needed unless a search
+    //that avoids vertex finds a path at least as short.
+    private int shortcuts(int vertex) {
+      pendingVertex = vertex;
+      numPending = 0;
+      EdgeList into = in[vertex];
+      EdgeList outOf = out[vertex];
+      if (into.size == 0 || outOf.size == 0) {
+        return 0;
+      }
+
+      double longestOut = 0;
+      stamp++;
+      for (int j = 0; j < outOf.size; j++) {
+        longestOut = Math.max(longestOut, outOf.weight[j]);
+        mark[outOf.other[j]] = stamp;
+      }
+      for (int i = 0; i < into.size; i++) {
+        int from = into.other[i];
+        searchAround(from, vertex, into.weight[i] + longestOut,
+                     outOf.size);
+
+        for (int j = 0; j < outOf.size; j++) {
+          int to = outOf.other[j];
+          double viaVertex = into.weight[i] + outOf.weight[j];
+          if (to != from && witness.getDist(to) > viaVertex) {
+            addPending(from, to, viaVertex);
+          }
+        }
+      }
+      return numPending;
+    }
+
+    private void addPending(int from, int to, double weight) {
+      if (numPending == pendingFrom.length) {
+        pendingFrom = Arrays.copyOf(pendingFrom, numPending * 2);
+        pendingTo = Arrays.copyOf(pendingTo, numPending * 2);
+        pendingWeight = Arrays.copyOf(pendingWeight, numPending * 2);
+      }
+      pendingFrom[numPending] = from;
+      pendingTo[numPending] = to;
+      pendingWeight[numPending] = weight;
+      numPending++;
+    }
+
+    //runs a limited search from source that doesn't go through avoid,
+    //stopping early once the remaining vertices marked with stamp, the
+    //ones avoid leads to, are settled
+    private void searchAround(int source, int avoid, double limit,
+                              int remaining) {
+      witness.reset();
+      witness.relax(source, 0, -1, 0);
+      int settled = 0;
+      while (!witness.isEmpty() && witness.peekKey() <= limit
+             && settled < WITNESS_LIMIT && remaining > 0) {
+        int next = witness.poll();
+        settled++;
+        if (mark[next] == stamp) {
+          remaining--;
+        }
+        double dist = witness.getDist(next);
+        EdgeList edges = out[next];
+        for (int i = 0; i < edges.size; i++) {
+          int to = edges.other[i];
+          if (to != avoid && !witness.isSettled(to)) {
+            witness.relax(to, dist + edges.weight[i], next, 0);
+          }
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,238 @@
+package portfolio;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.stream.IntStream;
+
+/**
+ * Runs Dijkstra's algorithm on a CsrGraph.
+ * <p> Distances, predecessors and the settled set live in primitive arrays
+ * that are allocated once and reused, only clearing the entries the last
+ * search touched, so a query allocates nothing beyond its answer. Many
+ * threads can query the same CsrDijkstra at once.
+ * <p> Each set of arrays takes about 33 bytes per vertex, so hundreds of
+ * megabytes on a graph of ten million vertices. Queries borrow a set from a
+ * pool and give it back when they finish, so there are only ever as many
+ * as there have been queries running at once, not one per thread that ever
+ * asked. close() lets go of the pooled sets. Point to point queries can
+ * also run A* with Landmarks as the heuristic, and distance matrices run a
+ * search per source across every core.
+ *
+ * @author Zachary Hoffman
+ */
+public final class CsrDijkstra implements AutoCloseable {
+  private final CsrGraph graph;
+  //search states not in use by a query right now
+  private final ConcurrentLinkedQueue<SearchState> scratch;
+
+  /** Constructs a CsrDijkstra that searches the given graph.
+   * @param graph The graph to search.
+   */
+  public CsrDijkstra(CsrGraph graph) {
+    this.graph = graph;
+    this.scratch = new ConcurrentLinkedQueue<>();
+  }
+
+  //takes a search state from the pool, making one if they are all in use
+  private SearchState acquire() {
+    SearchState state = scratch.poll();
+    if (state == null) {
+      state = new SearchState(graph.getNumVertices());
+    }
+    state.reset();
+    return state;
+  }
+
+  //gives a search state back to the pool once a query is done with it
+  private void release(SearchState state) {
+    scratch.offer(state);
+  }
+
+  /** Lets go of the arrays kept for reuse between queries, so the memory
+   * can be reclaimed. The CsrDijkstra can still be used afterwards, and
+   * queries running at the time keep theirs until they finish.
+   */
+  @Override
+  public void close() {
+    scratch.clear();
+  }
+
+  /** Returns the graph being searched.
+   * @return The graph being searched.
+   */
+  public CsrGraph getGraph() {
+    return graph;
+  }
+
+  /** Finds the length of the shortest path between two vertices.
+   * @param source The vertex to start from.
+   * @param target The vertex to find.
+   * @return The length of the shortest path, or positive infinity if target
+   * can't be reached.
+   */
+  public double distance(int source, int target) {
+    return distance(source, target, null);
+  }
+
+  /** Finds the length of the shortest path between two vertices with A*,
+   * using landmarks to steer the search towards target.
+   * @param source The vertex to start from.
+   * @param target The vertex to find.
+   * @param landmarks Landmarks picked in this graph, or null to run plain
+   * Dijkstra.
+   * @return The length of the shortest path, or positive infinity if target
+   * can't be reached.
+   */
+  public double distance(int source, int target, Landmarks landmarks) {
+    SearchState state = acquire();
+    try {
+      state.relax(source, 0, -1, estimate(landmarks, source, target));
+      search(state, target, landmarks);
+      return state.getDist(target);
+    } finally {
+      release(state);
+    }
+  }
+
+  /** Finds the shortest path between given start vertices and an end vertex.
+   * @param sources The vertices to start searching from.
+   * @param target The vertex being searched for.
+   * @return The vertices along the path, starting with one of sources and
+   * ending with target, or an empty array if target can't be reached.
+   */
+  public int[] path(int[] sources, int target) {
+    return path(sources, target, null);
+  }
+
+  /** Finds the shortest path between given start vertices and an end vertex
+   * with A*, using landmarks to steer the search towards target.
+   * @param sources The vertices to start searching from.
+   * @param target The vertex being searched for.
+   * @param landmarks Landmarks picked in this graph, or null to run plain
+   * Dijkstra.
+   * @return The vertices along the path, starting with one of sources and
+   * ending with target, or an empty array if target can't be reached.
+   */
+  public int[] path(int[] sources, int target, Landmarks landmarks) {
+    SearchState state = acquire();
+    try {
+      for (int source : sources) {
+        state.relax(source, 0, -1, estimate(landmarks, source, target));
+      }
+      search(state, target, landmarks);
+      return state.path(target);
+    } finally {
+      release(state);
+    }
+  }
+
+  /** Finds the length of the shortest path from a vertex to every vertex.
+   * @param source The vertex to start from.
+   * @return The distance to every vertex, positive infinity for those that
+   * can't be reached.
+   */
+  public double[] distancesFrom(int source) {
+    SearchState state = acquire();
+    try {
+      state.relax(source, 0, -1, 0);
+      search(state, -1, null);
+      double[] distances = new double[graph.getNumVertices()];
+      for (int v = 0; v < distances.length; v++) {
+        distances[v] = state.getDist(v);
+      }
+      return distances;
+    } finally {
+      release(state);
+    }
+  }
+
+  /** Finds the length of the shortest path from each of some vertices to
+   * each of others. Each source gets one search, which stops once every
+   * target is settled, and the searches run in parallel on the common
+   * ForkJoinPool.
+   * @param sources The vertices to start from.
+   * @param targets The vertices to find.
+   * @return The distance from sources[i] to targets[j] at [i][j], positive
+   * infinity where the target can't be reached.
+   */
+  public double[][] distanceMatrix(int[] sources, int[] targets) {
+    //mark the targets once so every search can tell when it has them all
+    boolean[] isTarget = new boolean[graph.getNumVertices()];
+    int numTargets = 0;
+    for (int target : targets) {
+      if (!isTarget[target]) {
+        isTarget[target] = true;
+        numTargets++;
+      }
+    }
+    int distinctTargets = numTargets;
+
+    double[][] matrix = new double[sources.length][];
+    IntStream.range(0, sources.length).parallel().forEach(i -> {
+      SearchState state = acquire();
+      try {
+        state.relax(sources[i], 0, -1, 0);
+        searchAll(state, isTarget, distinctTargets);
+        double[] row = new double[targets.length];
+        for (int j = 0; j < row.length; j++) {
+          row[j] = state.getDist(targets[j]);
+        }
+        matrix[i] = row;
+      } finally {
+        release(state);
+      }
+    });
+    return matrix;
+  }
+
+  private static double estimate(Landmarks landmarks, int vertex, int target) {
+    if (landmarks == null) {
+      return 0;
+    } else {
+      return landmarks.estimate(vertex, target);
+    }
+  }
+
+  //settles vertices in order of distance, plus estimated distance left when
+  //there are landmarks, until target is settled or until every reachable
+  //vertex is if target is -1
+  private void search(SearchState state, int target, Landmarks landmarks) {
+    while (!state.isEmpty()) {
+      int vertex = state.poll();
+      if (vertex == target) {
+        return;
+      }
+
+      double dist = state.getDist(vertex);
+      int lastEdge = graph.getFirstEdge(vertex + 1);
+      for (int e = graph.getFirstEdge(vertex); e < lastEdge; e++) {
+        int child = graph.getTarget(e);
+        if (!state.isSettled(child)) {
+          state.relax(child, dist + graph.getWeight(e), vertex,
+                      estimate(landmarks, child, target));
+        }
+      }
+    }
+  }
+
+  //settles vertices in order of distance until numTargets of the vertices
+  //marked in isTarget are settled or there are no more to settle
+  private void searchAll(SearchState state, boolean[] isTarget,
+                         int numTargets) {
+    int remaining = numTargets;
+    while (!state.isEmpty() && remaining > 0) {
+      int vertex = state.poll();
+      if (isTarget[vertex] && --remaining == 0) {
+        return;
+      }
+
+      double dist = state.getDist(vertex);
+      int lastEdge = graph.getFirstEdge(vertex + 1);
+      for (int e = graph.getFirstEdge(vertex); e < lastEdge; e++) {
+        int child = graph.getTarget(e);
+        if (!state.isSettled(child)) {
+          state.relax(child, dist + graph.getWeight(e), vertex, 0);
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,148 @@
+package portfolio;
+
+import java.util.Arrays;
+
+/**
+ * Represents a directed weighted graph in compressed sparse row form.
+ * <p> Vertices are the ints 0 to getNumVertices() - 1. The edges leaving
+ * vertex v are getFirstEdge(v) to getFirstEdge(v + 1) - 1, and each edge is
+ * just an entry in a target array and a weight array, so walking a vertex's
+ * edges reads two contiguous runs of memory.
+ *
+ * @author Zachary Hoffman
+ */
+public final class CsrGraph {
+  private final int numVertices;
+  private final int[] firstEdge;
+  private final int[] targets;
+  private final double[] weights;
+  //a hash of the vertices and edges, worked out the first time it is asked
+  //for. 0 means not yet, which a real fingerprint is never left as.
+  private volatile long fingerprint;
+
+  /** Constructs a CsrGraph from a list of edges, given as three parallel
+   * arrays.
+   * @param numVertices The number of vertices in the graph.
+   * @param edgeSources The vertex each edge leaves from.
+   * @param edgeTargets The vertex each edge goes to.
+   * @param edgeWeights The weight of each edge, which must not be negative.
+   */
+  public CsrGraph(int numVertices,
+                  int[] edgeSources,
+                  int[] edgeTargets,
+                  double[] edgeWeights) {
+    if (edgeSources.length != edgeTargets.length
+        || edgeSources.length != edgeWeights.length) {
+      throw new IllegalArgumentException("Edge arrays differ in length");
+    }
+    this.numVertices = numVertices;
+    this.firstEdge = new int[numVertices + 1];
+    this.targets = new int[edgeSources.length];
+    this.weights = new double[edgeSources.length];
+
+    //count the edges leaving each vertex, then turn the counts into offsets
+    for (int i = 0; i < edgeSources.length; i++) {
+      checkVertex(edgeSources[i]);
+      checkVertex(edgeTargets[i]);
+      if (!(edgeWeights[i] >= 0)) {
+        throw new IllegalArgumentException("Edge weights must not be "
+                                           + "negative or NaN");
+      }
+      firstEdge[edgeSources[i] + 1]++;
+    }
+    for (int v = 0; v < numVertices; v++) {
+      firstEdge[v + 1] += firstEdge[v];
+    }
+
+    //place every edge in its source's run
+    int[] next = Arrays.copyOf(firstEdge, numVertices);
+    for (int i = 0; i < edgeSources.length; i++) {
+      int slot = next[edgeSources[i]]++;
+      targets[slot] = edgeTargets[i];
+      weights[slot] = edgeWeights[i];
+    }
+  }
+
+  private void checkVertex(int vertex) {
+    if (vertex < 0 || vertex >= numVertices) {
+      throw new IllegalArgumentException("No vertex " + vertex);
+    }
+  }
+
+  /** Returns the number of vertices in the graph.
+   * @return The number of vertices in the graph.
+   */
+  public int getNumVertices() {
+    return numVertices;
+  }
+
+  /** Returns the number of edges in the graph.
+   * @return The number of edges in the graph.
+   */
+  public int getNumEdges() {
+    return targets.length;
+  }
+
+  /** Returns the first edge leaving a vertex. The edges leaving vertex v are
+   * getFirstEdge(v) to getFirstEdge(v + 1) - 1.
+   * @param vertex The vertex, from 0 to getNumVertices().
+   * @return The index of the vertex's first edge.
+   */
+  public int getFirstEdge(int vertex) {
+    return firstEdge[vertex];
+  }
+
+  /** Returns the vertex an edge goes to.
+   * @param edge The index of the edge.
+   * @return The vertex the edge goes to.
+   */
+  public int getTarget(int edge) {
+    return targets[edge];
+  }
+
+  /** Returns the weight of an edge.
+   * @param edge The index of the edge.
+   * @return The weight of the edge.
+   */
+  public double getWeight(int edge) {
+    return weights[edge];
+  }
+
+  /** Returns a hash of the graph's vertices and edges, in order, which is
+   * the same for graphs built from the same edges in the same order. It is
+   * worked out over every edge the first time and kept after that.
+   * @return The graph's fingerprint.
+   */
+  public long getFingerprint() {
+    long hash = fingerprint;
+    if (hash == 0) {
+      hash = numVertices;
+      for (int v = 0; v < numVertices; v++) {
+        hash = hash * 31 + firstEdge[v + 1];
+      }
+      for (int e = 0; e < targets.length; e++) {
+        hash = hash * 31 + targets[e];
+        hash = hash * 31 + Double.doubleToLongBits(weights[e]);
+      }
+      if (hash == 0) {
+        hash = 1;
+      }
+      fingerprint = hash;
+    }
+    return hash;
+  }
+
+  /** Returns the graph with every edge turned around, so that the edges
+   * leaving a vertex are the edges that entered it here.
+   * @return The reversed graph.
+   */
+  public CsrGraph reverse() {
+    int[] sources = new int[targets.length];
+    for (int v = 0; v < numVertices; v++) {
+      for (int e = firstEdge[v]; e < firstEdge[v + 1]; e++) {
+        sources[e] = v;
+      }
+    }
+    return new CsrGraph(numVertices, targets, sources, weights);
+  }
+}
@@ -0,0 +1,205 @@
+package portfolio;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.function.ToIntFunction;
+
+/**
+ * A fringe backed by an indexed d-ary heap with decrease-key, holding at most
+ * one entry per node. A larger arity makes the heap shallower, which speeds
+ * up the decrease-keys that dense graphs do a lot of at the cost of slower
+ * polls.
+ * <p> Given each node's vertex id, the heap keeps where every node is in an
+ * int array indexed by id, as CsrDijkstra does, rather than a HashMap,
+ * which saves a boxed entry per node and a hash on every move.
+ *
+ * @author Zachary Hoffman
+ * @param <Node> The type of node held in the fringe.
+ */
+public final class DaryHeapFringe<Node> implements Fringe<Node> {
+  private final int arity;
+  private Object[] nodes;
+  private double[] priorities;
+  private int size;
+  //where each waiting node is in the heap, plus one so 0 means not waiting,
+  //by vertex id if vertexOf is known and otherwise by node
+  private final ToIntFunction<Node> vertexOf;
+  private int[] positionById;
+  private final HashMap<Node, Integer> positions;
+
+  /** Constructs an empty 4-ary heap.
+   */
+  public DaryHeapFringe() {
+    this(4);
+  }
+
+  /** Constructs an empty d-ary heap.
+   * @param arity The number of children each heap entry has, at least 2.
+   */
+  public DaryHeapFringe(int arity) {
+    this(arity, null);
+  }
+
+  /** Constructs an empty d-ary heap that finds nodes by vertex id.
+   * @param arity The number of children each heap entry has, at least 2.
+   * @param vertexOf Returns a node's vertex id, which must be non-negative
+   * and the same for nodes exactly when they are equal. Ids should be dense,
+   * as the heap keeps an array as long as the largest id seen, or null to
+   * find nodes with a HashMap.
+   */
+  public DaryHeapFringe(int arity, ToIntFunction<Node> vertexOf) {
+    if (arity < 2) {
+      throw new IllegalArgumentException("arity must be at least 2");
+    }
+    this.arity = arity;
+    this.nodes = new Object[16];
+    this.priorities = new double[16];
+    this.size = 0;
+    this.vertexOf = vertexOf;
+    this.positionById = vertexOf == null ? null : new int[16];
+    this.positions = vertexOf == null ? new HashMap<>() : null;
+  }
+
+  @Override
+  public void add(Node node, double priority) {
+    int position = positionOf(node);
+    if (position >= 0) {
+      //decrease-key, keeping the lighter of the two
+      if (priority < priorities[position]) {
+        nodes[position] = node;
+        priorities[position] = priority;
+        siftUp(position);
+      }
+      return;
+    }
+
+    if (size == nodes.length) {
+      nodes = Arrays.copyOf(nodes, size * 2);
+      priorities = Arrays.copyOf(priorities, size * 2);
+    }
+    nodes[size] = node;
+    priorities[size] = priority;
+    setPosition(node, size);
+    size++;
+    siftUp(size - 1);
+  }
+
+  @Override
+  public Node poll() {
+    if (size == 0) {
+      return null;
+    }
+    Node top = nodeAt(0);
+    setPosition(top, -1);
+    size--;
+    if (size > 0) {
+      nodes[0] = nodes[size];
+      priorities[0] = priorities[size];
+      siftDown(0);
+    }
+    nodes[size] = null;
+    return top;
+  }
+
+  @Override
+  public List<Node> peek(int count) {
+    //the top levels of the heap come first in the array
+    int end = Math.min(count, size);
+    List<Node> soonest = new ArrayList<>(end);
+    for (int i = 0; i < end; i++) {
+      soonest.add(nodeAt(i));
+    }
+    return soonest;
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  //returns where node is in the heap, or -1 if it isn't waiting
+  private int positionOf(Node node) {
+    if (vertexOf == null) {
+      Integer position = positions.get(node);
+      return position == null ? -1 : position;
+    }
+    int id = vertexOf.applyAsInt(node);
+    return id < positionById.length ? positionById[id] - 1 : -1;
+  }
+
+  //records where node is in the heap, -1 for not waiting
+  private void setPosition(Node node, int position) {
+    if (vertexOf == null) {
+      if (position < 0) {
+        positions.remove(node);
+      } else {
+        positions.put(node, position);
+      }
+      return;
+    }
+    int id = vertexOf.applyAsInt(node);
+    if (id >= positionById.length) {
+      positionById = Arrays.copyOf(positionById,
+                                   Math.max(id + 1, positionById.length * 2));
+    }
+    positionById[id] = position + 1;
+  }
+
+  @SuppressWarnings("unchecked")
+  private Node nodeAt(int index) {
+    return (Node) nodes[index];
+  }
+
+  private void siftUp(int index) {
+    Node node = nodeAt(index);
+    double priority = priorities[index];
+    while (index > 0) {
+      int parent = (index - 1) / arity;
+      if (priorities[parent] <= priority) {
+        break;
+      }
+      move(parent, index);
+      index = parent;
+    }
+    place(node, priority, index);
+  }
+
+  private void siftDown(int index) {
+    Node node = nodeAt(index);
+    double priority = priorities[index];
+    while (true) {
+      int first = arity * index + 1;
+      if (first >= size) {
+        break;
+      }
+      int best = first;
+      int last = Math.min(first + arity, size);
+      for (int child = first + 1; child < last; child++) {
+        if (priorities[child] < priorities[best]) {
+          best = child;
+        }
+      }
+      if (priorities[best] >= priority) {
+        break;
+      }
+      move(best, index);
+      index = best;
+    }
+    place(node, priority, index);
+  }
+
+  //moves the entry at from to to
+  private void move(int from, int to) {
+    nodes[to] = nodes[from];
+    priorities[to] = priorities[from];
+    setPosition(nodeAt(to), to);
+  }
+
+  private void place(Node node, double priority, int index) {
+    nodes[index] = node;
+    priorities[index] = priority;
+    setPosition(node, index);
+  }
+}
@@ -2,8 +2,13 @@ package portfolio;
 
 import java.util.List;
 import java.util.ArrayList;
-import java.util.HashSet;
-import java.util.PriorityQueue;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 /**
  * Runs Dijkstra's algroithm on given nodes.
@@ -14,10 +19,88 @@ import java.util.PriorityQueue;
  * @param <Goal> The value that the end node should return true for isGoal().
  */
 public final class Dijkstra<Node extends DijkstraUsable<Node, Goal>, Goal> {
+  private boolean useHeuristic;
+  private Supplier<Fringe<Node>> fringeSupplier;
+  private Executor prefetchExecutor;
+  private int prefetchCount;
+  private BulkChildrenLoader<Node> bulkLoader;
+  private AdjacencyCache<Node> cache;
+  private SearchListener listener;
+
   /** There are no args needed for Dijkstra, simply fill out the type.
    */
   public Dijkstra() {
+    this.useHeuristic = false;
+    this.fringeSupplier = LazyFringe::new;
+    this.prefetchExecutor = null;
+    this.prefetchCount = 0;
+    this.bulkLoader = null;
+    this.cache = null;
+    this.listener = null;
+  }
+
+  /** Sets whether findPath runs A*, ordering the fringe by each node's weight
+   * plus its heuristic weight so the search heads towards the goal. As long
+   * as getHeuristic never overestimates the remaining distance the path
+   * found is still a shortest one.
+   * @param useHeuristic True to run A*, false to run plain Dijkstra.
+   */
+  public void setUseHeuristic(boolean useHeuristic) {
+    this.useHeuristic = useHeuristic;
+  }
+
+  /** Sets what kind of fringe findPath keeps the nodes waiting to be
+   * expanded in. Defaults to a LazyFringe. A BucketFringe needs a maxStep
+   * of at least the heaviest edge weight, or twice that with the heuristic
+   * on, and the heap fringes find nodes faster given their vertex ids.
+   * @param fringeSupplier Makes a new, empty fringe for each search.
+   */
+  public void setFringe(Supplier<Fringe<Node>> fringeSupplier) {
+    this.fringeSupplier = fringeSupplier;
+  }
+
+  /** Sets findPath to load the children of the nodes it will expand soon in
+   * the background while it expands the current one, which hides the latency
+   * of a getChildren that does I/O. Nodes are still expanded in the same
+   * order with the same children, so the path found doesn't change.
+   * Loads are kept by equality, at most one per vertex, so when a
+   * decrease-key fringe swaps in a lighter node the load for the heavier one
+   * is cancelled and the lighter one loaded instead. Loaded children are
+   * only used for the node object they were loaded for, as children's
+   * weights and parents depend on their parent.
+   * getChildren, and the cache or bulk loader if set, is called from the
+   * executor's threads while the search runs, so it must be thread-safe.
+   * @param executor Runs the loads, e.g. a pool sized for the backend or a
+   * virtual thread per task executor, or null to turn prefetching off.
+   * @param count How many of the next nodes in the fringe to load ahead.
+   */
+  public void setPrefetch(Executor executor, int count) {
+    this.prefetchExecutor = executor;
+    this.prefetchCount = count;
+  }
+
+  /** Sets a loader that prefetching uses to load the children of many nodes
+   * in one call instead of calling getChildren on each.
+   * @param bulkLoader The loader, or null to call getChildren on each node.
+   */
+  public void setBulkChildrenLoader(BulkChildrenLoader<Node> bulkLoader) {
+    this.bulkLoader = bulkLoader;
+  }
 
+  /** Sets a cache that findPath gets children through, which can be shared
+   * with other Dijkstras searching the same graph, on any thread.
+   * @param cache The cache, or null to call getChildren every time.
+   */
+  public void setAdjacencyCache(AdjacencyCache<Node> cache) {
+    this.cache = cache;
+  }
+
+  /** Sets a listener to hand SearchStats to after every findPath call.
+   * Nothing is counted or timed while there is no listener.
+   * @param listener The listener, or null to stop counting.
+   */
+  public void setSearchListener(SearchListener listener) {
+    this.listener = listener;
   }
 
   /** Finds the shortest path between given start nodes and an end node.
@@ -30,38 +113,122 @@ public final class Dijkstra<Node extends DijkstraUsable<Node, Goal>, Goal> {
   public List<Node> findPath(List<Node> start, Goal finish)
     throws RuntimeException {
 
-    //creates a priority queue which uses node wieghts as a comparator.
-    PriorityQueue<Node> fringe =
-        new PriorityQueue<>(
-            (Node n1, Node n2) ->
-              n1.getWeight().compareTo(n2.getWeight()));
+    SearchStats stats = listener == null ? null : new SearchStats();
+    long startTime = stats == null ? 0 : System.nanoTime();
 
-    fringe.addAll(start);
+    //creates a fringe which uses node wieghts as priorities
+    Fringe<Node> fringe = fringeSupplier.get();
+    for (Node node : start) {
+      fringe.add(node, priority(node));
+      if (stats != null) {
+        stats.addPush(fringe.size());
+      }
+    }
 
     //Dijkstra's algorithm
-    HashSet<Node> traversed = new HashSet<>();
+    HashMap<Node, Double> traversed = new HashMap<>();
+    HashMap<Node, Prefetched<Node>> loading = new HashMap<>();
+    List<Node> nodePath = null;
+    try {
+      nodePath = search(fringe, finish, traversed, loading, stats);
+      return nodePath;
+    } finally {
+      //nobody will want whatever is still loading
+      for (Prefetched<Node> prefetched : loading.values()) {
+        prefetched.children.cancel(false);
+      }
+      if (stats != null) {
+        stats.finish(System.nanoTime() - startTime,
+                     nodePath != null && !nodePath.isEmpty());
+        listener.searchFinished(stats);
+      }
+    }
+  }
+
+  /** Starts a search from the given nodes that can be asked for many goals,
+   * keeping everything it settles between them. It uses this Dijkstra's
+   * fringe and adjacency cache but never a heuristic.
+   * @param start A list of nodes to start searching from.
+   * @return The search, which has settled nothing yet.
+   */
+  public ShortestPathTree<Node, Goal> shortestPathTree(List<Node> start) {
+    return new ShortestPathTree<>(start, fringeSupplier.get(), cache, null);
+  }
+
+  /** Starts a search as shortestPathTree does, which looks up settled goals
+   * in a hash table rather than calling isGoal on every settled node.
+   * @param start A list of nodes to start searching from.
+   * @param goalOf Returns the goal a node is, such that node.isGoal(goal)
+   * is true exactly when goalOf.apply(node) equals goal.
+   * @return The search, which has settled nothing yet.
+   */
+  public ShortestPathTree<Node, Goal> shortestPathTree(
+      List<Node> start, Function<Node, Goal> goalOf) {
+    return new ShortestPathTree<>(start, fringeSupplier.get(), cache, goalOf);
+  }
+
+  // runs the search, loading children through loading when prefetching
+  private List<Node> search(
+      Fringe<Node> fringe,
+      Goal finish,
+      HashMap<Node, Double> traversed,
+      HashMap<Node, Prefetched<Node>> loading,
+      SearchStats stats) {
     while (true) {
       if (fringe.size() == 0) {
         return new ArrayList<>();
       }
       Node selected = fringe.poll();
 
-      // to remove backtracking and looping
-      if (traversed.contains(selected)) {
+      // to remove backtracking and looping. A heuristic that isn't consistent
+      // can reach a node the long way first, so a node is expanded again if
+      // it turns up lighter than when it was expanded before.
+      Double traversedWeight = traversed.get(selected);
+      if (traversedWeight != null
+          && traversedWeight <= selected.getWeight()) {
+        Prefetched<Node> stale = loading.remove(selected);
+        if (stale != null) {
+          stale.children.cancel(false);
+        }
+        if (stats != null) {
+          stats.addStalePop();
+        }
         continue;
       } else {
-        traversed.add(selected);
+        traversed.put(selected, selected.getWeight());
+        if (stats != null) {
+          stats.addSettled();
+        }
       }
 
 
+      // start loading what will be expanded next while this one is
+      if (prefetchExecutor != null) {
+        prefetch(fringe, traversed, loading);
+      }
+
       // if selected is the goal we are done
       // otherwise expand it and add its children to the fringe
       try {
         if (selected.isGoal(finish)) {
           return path(selected);
         } else {
-          List<Node> children = selected.getChildren();
-          fringe.addAll(children);
+          long childrenStart = stats == null ? 0 : System.nanoTime();
+          List<Node> children = childrenOf(selected, loading);
+          if (stats != null) {
+            stats.addChildrenNanos(System.nanoTime() - childrenStart);
+          }
+          for (Node child : children) {
+            //no need to queue a node that was already expanded lighter
+            Double childTraversed = traversed.get(child);
+            if (childTraversed == null
+                || childTraversed > child.getWeight()) {
+              fringe.add(child, priority(child));
+              if (stats != null) {
+                stats.addPush(fringe.size());
+              }
+            }
+          }
         }
       } catch (Exception e) {
         e.printStackTrace();
@@ -70,17 +237,129 @@ public final class Dijkstra<Node extends DijkstraUsable<Node, Goal>, Goal> {
     }
   }
 
-  // returns a lists representing the path to the given node
-  private List<Node> path(Node curnode) {
-    Node parent = curnode.getParent();
-    if (parent != null) {
-      List<Node> nodePath = path(parent);
-      nodePath.add(curnode);
-      return nodePath;
+  // starts loading the children of the next few nodes in the fringe that
+  // will be expanded and aren't loading already
+  private void prefetch(
+      Fringe<Node> fringe,
+      HashMap<Node, Double> traversed,
+      HashMap<Node, Prefetched<Node>> loading) {
+    List<Node> batch = new ArrayList<>();
+    for (Node node : fringe.peek(prefetchCount)) {
+      Double traversedWeight = traversed.get(node);
+      Prefetched<Node> prefetched = loading.get(node);
+      if (prefetched != null && prefetched.node != node
+          && node.getWeight() < prefetched.node.getWeight()) {
+        //the fringe now holds a lighter equal node, so load for that one
+        prefetched.children.cancel(false);
+        loading.remove(node);
+        prefetched = null;
+      }
+      if (prefetched == null
+          && (bulkLoader == null || cache == null || !cache.contains(node))
+          && (traversedWeight == null
+              || traversedWeight > node.getWeight())) {
+        batch.add(node);
+      }
+    }
+    if (batch.isEmpty()) {
+      return;
+    }
+
+    if (bulkLoader == null) {
+      for (Node node : batch) {
+        CompletableFuture<List<Node>> children =
+            CompletableFuture.supplyAsync(() -> {
+              try {
+                return loadChildren(node);
+              } catch (Exception e) {
+                throw new CompletionException(e);
+              }
+            }, prefetchExecutor);
+        loading.put(node, new Prefetched<>(node, children));
+      }
+    } else {
+      CompletableFuture<List<List<Node>>> all =
+          CompletableFuture.supplyAsync(() -> {
+            try {
+              return bulkLoader.getChildren(batch);
+            } catch (Exception e) {
+              throw new CompletionException(e);
+            }
+          }, prefetchExecutor);
+      for (int i = 0; i < batch.size(); i++) {
+        int index = i;
+        Node node = batch.get(i);
+        CompletableFuture<List<Node>> children = all.thenApply(lists -> {
+          if (cache != null) {
+            cache.put(node, lists.get(index));
+          }
+          return lists.get(index);
+        });
+        loading.put(node, new Prefetched<>(node, children));
+      }
+    }
+  }
+
+  // returns a node's children, waiting for them if they are being loaded
+  // for that node object
+  private List<Node> childrenOf(
+      Node node,
+      HashMap<Node, Prefetched<Node>> loading)
+    throws Exception {
+    Prefetched<Node> prefetched = loading.remove(node);
+    if (prefetched == null) {
+      return loadChildren(node);
+    } else if (prefetched.node != node) {
+      prefetched.children.cancel(false);
+      return loadChildren(node);
+    }
+    try {
+      return prefetched.children.join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof Exception) {
+        throw (Exception) e.getCause();
+      }
+      throw e;
+    }
+  }
+
+  // returns a node's children, through the cache if there is one
+  private List<Node> loadChildren(Node node) throws Exception {
+    if (cache == null) {
+      return node.getChildren();
+    } else {
+      return cache.getChildren(node);
+    }
+  }
+
+  // returns a node's weight, plus its heuristic weight for A*
+  private double priority(Node node) {
+    if (useHeuristic) {
+      return node.getWeight() + node.getHeuristic();
     } else {
-      List<Node> base = new ArrayList<>();
-      base.add(curnode);
-      return base;
+      return node.getWeight();
+    }
+  }
+
+  // returns a lists representing the path to the given node, walking up
+  // the parents and then turning the list around
+  private List<Node> path(Node curnode) {
+    List<Node> nodePath = new ArrayList<>();
+    for (Node node = curnode; node != null; node = node.getParent()) {
+      nodePath.add(node);
+    }
+    Collections.reverse(nodePath);
+    return nodePath;
+  }
+
+  //children being loaded ahead and the node they are being loaded for
+  private static final class Prefetched<Node extends DijkstraUsable<Node, ?>> {
+    private final Node node;
+    private final CompletableFuture<List<Node>> children;
+
+    Prefetched(Node node, CompletableFuture<List<Node>> children) {
+      this.node = node;
+      this.children = children;
     }
   }
 }
@@ -0,0 +1,46 @@
+package portfolio;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Interface that outlines what the fringe of nodes waiting to be expanded in
+ * Dijkstra needs.
+ * <p> Implementations that support decrease-key keep at most one entry per
+ * node, treating equal nodes as the same node: adding a node that is already
+ * waiting replaces it only if the new priority is lower. Others simply keep
+ * every entry and leave Dijkstra to skip the stale ones.
+ *
+ * @author Zachary Hoffman
+ * @param <Node> The type of node held in the fringe.
+ */
+public interface Fringe<Node> {
+  /** Adds a node to the fringe.
+   * @param node The node to add.
+   * @param priority The node's priority, lower being polled first.
+   */
+  void add(Node node, double priority);
+
+  /** Removes and returns the node with the lowest priority.
+   * @return The node with the lowest priority, or null if the fringe is
+   * empty.
+   */
+  Node poll();
+
+  /** Returns the number of entries in the fringe.
+   * @return The number of entries in the fringe.
+   */
+  int size();
+
+  /** Returns some of the nodes that will be polled soon, without removing
+   * them. This is only a hint, used to start loading their children early,
+   * so the nodes needn't be exactly the next ones and may include entries
+   * that will turn out to be stale.
+   * @param count The most nodes to return.
+   * @return Up to count waiting nodes, roughly soonest first. The default
+   * returns none.
+   */
+  default List<Node> peek(int count) {
+    return Collections.emptyList();
+  }
+}
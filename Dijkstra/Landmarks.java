@@ -0,0 +1,97 @@
+package portfolio;
+
+/**
+ * Holds the distances between a few landmark vertices and every vertex of a
+ * CsrGraph, used as an A* heuristic by CsrDijkstra.
+ * <p> By the triangle inequality the distance from v to t is at least
+ * d(L, t) - d(L, v) and d(v, L) - d(t, L) for every landmark L, so the best
+ * of these never overestimates and is consistent. Landmarks are picked one
+ * at a time as the vertex furthest from those already picked, which puts
+ * them around the edge of the graph where the bounds are tightest.
+ *
+ * @author Zachary Hoffman
+ */
+public final class Landmarks {
+  private final int[] landmarks;
+  //fromLandmark[l][v] is the distance from landmark l to v and
+  //toLandmark[l][v] the distance from v to landmark l
+  private final double[][] fromLandmark;
+  private final double[][] toLandmark;
+
+  /** Picks landmarks in a graph and finds their distances to and from
+   * every vertex.
+   * @param graph The graph to pick landmarks in.
+   * @param numLandmarks How many landmarks to pick, more giving tighter
+   * bounds for more memory.
+   */
+  public Landmarks(CsrGraph graph, int numLandmarks) {
+    int numVertices = graph.getNumVertices();
+    numLandmarks = Math.min(numLandmarks, numVertices);
+    CsrDijkstra forward = new CsrDijkstra(graph);
+    CsrDijkstra backward = new CsrDijkstra(graph.reverse());
+    landmarks = new int[numLandmarks];
+    fromLandmark = new double[numLandmarks][];
+    toLandmark = new double[numLandmarks][];
+
+    //the smallest distance from any picked landmark to each vertex, the
+    //first landmark being picked as though vertex 0 already were one
+    double[] closest = numVertices > 0
+        ? forward.distancesFrom(0) : new double[0];
+    for (int l = 0; l < numLandmarks; l++) {
+      int furthest = 0;
+      for (int v = 0; v < numVertices; v++) {
+        if (isFurther(closest[v], closest[furthest])) {
+          furthest = v;
+        }
+      }
+      landmarks[l] = furthest;
+      fromLandmark[l] = forward.distancesFrom(furthest);
+      toLandmark[l] = backward.distancesFrom(furthest);
+      for (int v = 0; v < numVertices; v++) {
+        closest[v] = l == 0 ? fromLandmark[l][v]
+                            : Math.min(closest[v], fromLandmark[l][v]);
+      }
+    }
+  }
+
+  //picks unreachable vertices over reachable ones, so the next landmark
+  //covers a component no landmark reaches yet, and then the larger distance
+  private static boolean isFurther(double one, double two) {
+    if (Double.isInfinite(two)) {
+      return false;
+    } else if (Double.isInfinite(one)) {
+      return true;
+    }
+    return one > two;
+  }
+
+  /** Returns the vertices picked as landmarks.
+   * @return The landmark vertices.
+   */
+  public int[] getLandmarks() {
+    return landmarks.clone();
+  }
+
+  /** Returns a lower bound on the distance between two vertices.
+   * @param vertex The vertex to start from.
+   * @param target The vertex to reach.
+   * @return A distance no greater than the shortest path from vertex to
+   * target.
+   */
+  public double estimate(int vertex, int target) {
+    double best = 0;
+    for (int l = 0; l < landmarks.length; l++) {
+      //skip bounds that involve an unreachable vertex
+      double viaFrom = fromLandmark[l][target] - fromLandmark[l][vertex];
+      if (!Double.isNaN(viaFrom) && !Double.isInfinite(viaFrom)
+          && viaFrom > best) {
+        best = viaFrom;
+      }
+      double viaTo = toLandmark[l][vertex] - toLandmark[l][target];
+      if (!Double.isNaN(viaTo) && !Double.isInfinite(viaTo) && viaTo > best) {
+        best = viaTo;
+      }
+    }
+    return best;
+  }
+}
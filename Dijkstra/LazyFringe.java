@@ -0,0 +1,67 @@
+package portfolio;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * A fringe backed by a java.util.PriorityQueue without decrease-key: every
+ * add is a new entry, so a node can be in the fringe many times.
+ *
+ * @author Zachary Hoffman
+ * @param <Node> The type of node held in the fringe.
+ */
+public final class LazyFringe<Node> implements Fringe<Node> {
+  private final PriorityQueue<Entry<Node>> queue;
+
+  /** Constructs an empty LazyFringe.
+   */
+  public LazyFringe() {
+    queue = new PriorityQueue<>(
+        (Entry<Node> e1, Entry<Node> e2) ->
+          Double.compare(e1.priority, e2.priority));
+  }
+
+  @Override
+  public void add(Node node, double priority) {
+    queue.add(new Entry<>(node, priority));
+  }
+
+  @Override
+  public Node poll() {
+    Entry<Node> entry = queue.poll();
+    if (entry == null) {
+      return null;
+    } else {
+      return entry.node;
+    }
+  }
+
+  @Override
+  public int size() {
+    return queue.size();
+  }
+
+  @Override
+  public List<Node> peek(int count) {
+    //the queue iterates in heap order, so the first entries are near the top
+    List<Node> soonest = new ArrayList<>(Math.min(count, queue.size()));
+    for (Entry<Node> entry : queue) {
+      if (soonest.size() == count) {
+        break;
+      }
+      soonest.add(entry.node);
+    }
+    return soonest;
+  }
+
+  private static final class Entry<Node> {
+    private final Node node;
+    private final double priority;
+
+    Entry(Node node, double priority) {
+      this.node = node;
+      this.priority = priority;
+    }
+  }
+}
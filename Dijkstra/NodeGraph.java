@@ -0,0 +1,128 @@
+package portfolio;
+
+import java.util.List;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * Represents the graph reachable from some DijkstraUsable nodes as a
+ * CsrGraph, along with the mapping between nodes and int vertices.
+ * <p> Nodes are treated as the same vertex when they are equal. The weight
+ * of an edge is how much heavier a child is than the node it came from, as
+ * a node's weight is the length of the path to it.
+ *
+ * @author Zachary Hoffman
+ * @param <Node> A node that implements DijkstraUsable.
+ */
+public final class NodeGraph<Node extends DijkstraUsable<Node, ?>> {
+  private final CsrGraph graph;
+  private final List<Node> nodes;
+  private final HashMap<Node, Integer> ids;
+
+  private NodeGraph(CsrGraph graph, List<Node> nodes,
+                    HashMap<Node, Integer> ids) {
+    this.graph = graph;
+    this.nodes = nodes;
+    this.ids = ids;
+  }
+
+  /** Builds a NodeGraph by expanding every node reachable from the start
+   * nodes once.
+   * @param <Node> A node that implements DijkstraUsable.
+   * @param start The nodes to start exploring from.
+   * @return The explored graph.
+   * @throws RuntimeException If a node's getChildren method throws an error,
+   * this will rethrow the error.
+   */
+  public static <Node extends DijkstraUsable<Node, ?>> NodeGraph<Node>
+      explore(List<Node> start) throws RuntimeException {
+    List<Node> nodes = new ArrayList<>();
+    HashMap<Node, Integer> ids = new HashMap<>();
+    for (Node node : start) {
+      idOf(node, nodes, ids);
+    }
+
+    //expand each vertex once, in the order they were found
+    List<Integer> sources = new ArrayList<>();
+    List<Integer> targets = new ArrayList<>();
+    List<Double> weights = new ArrayList<>();
+    for (int i = 0; i < nodes.size(); i++) {
+      Node node = nodes.get(i);
+      List<Node> children;
+      try {
+        children = node.getChildren();
+      } catch (Exception e) {
+        throw new RuntimeException(e);
+      }
+      for (Node child : children) {
+        sources.add(i);
+        targets.add(idOf(child, nodes, ids));
+        weights.add(child.getWeight() - node.getWeight());
+      }
+    }
+
+    int[] edgeSources = new int[sources.size()];
+    int[] edgeTargets = new int[sources.size()];
+    double[] edgeWeights = new double[sources.size()];
+    for (int i = 0; i < edgeSources.length; i++) {
+      edgeSources[i] = sources.get(i);
+      edgeTargets[i] = targets.get(i);
+      edgeWeights[i] = weights.get(i);
+    }
+    CsrGraph graph = new CsrGraph(nodes.size(), edgeSources, edgeTargets,
+                                  edgeWeights);
+    return new NodeGraph<>(graph, nodes, ids);
+  }
+
+  //returns node's vertex, giving it the next one if it hasn't got one yet
+  private static <Node> int idOf(Node node, List<Node> nodes,
+                                 HashMap<Node, Integer> ids) {
+    Integer id = ids.get(node);
+    if (id == null) {
+      id = nodes.size();
+      ids.put(node, id);
+      nodes.add(node);
+    }
+    return id;
+  }
+
+  /** Returns the explored graph.
+   * @return The explored graph.
+   */
+  public CsrGraph getGraph() {
+    return graph;
+  }
+
+  /** Returns the vertex a node was given.
+   * @param node The node to look up.
+   * @return The node's vertex, or -1 if it was not reached.
+   */
+  public int getId(Node node) {
+    Integer id = ids.get(node);
+    if (id == null) {
+      return -1;
+    } else {
+      return id;
+    }
+  }
+
+  /** Returns the node that was first found for a vertex.
+   * @param id The vertex.
+   * @return The node for that vertex.
+   */
+  public Node getNode(int id) {
+    return nodes.get(id);
+  }
+
+  /** Turns a path of vertices back into the nodes they were found as.
+   * @param path The vertices along a path.
+   * @return The node for each vertex, in the same order.
+   */
+  public List<Node> toNodes(int[] path) {
+    List<Node> nodePath = new ArrayList<>(path.length);
+    for (int id : path) {
+      nodePath.add(nodes.get(id));
+    }
+    return nodePath;
+  }
+}
@@ -0,0 +1,208 @@
+package portfolio;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.function.ToIntFunction;
+
+/**
+ * A fringe backed by a pairing heap with decrease-key, holding at most one
+ * entry per node. Adds and decrease-keys take constant time and the work is
+ * put off until a poll, which suits searches that relax many more edges than
+ * they settle nodes.
+ * <p> Given each node's vertex id, the heap keeps each node's handle in an
+ * array indexed by id, as CsrDijkstra does, rather than a HashMap.
+ *
+ * @author Zachary Hoffman
+ * @param <Node> The type of node held in the fringe.
+ */
+public final class PairingHeapFringe<Node> implements Fringe<Node> {
+  private HeapNode<Node> root;
+  private int size;
+  //each waiting node's handle, by vertex id if vertexOf is known and
+  //otherwise by node
+  private final ToIntFunction<Node> vertexOf;
+  private HeapNode<Node>[] handleById;
+  private final HashMap<Node, HeapNode<Node>> handles;
+
+  /** Constructs an empty PairingHeapFringe.
+   */
+  public PairingHeapFringe() {
+    this(null);
+  }
+
+  /** Constructs an empty PairingHeapFringe that finds nodes by vertex id.
+   * @param vertexOf Returns a node's vertex id, which must be non-negative
+   * and the same for nodes exactly when they are equal. Ids should be dense,
+   * as the heap keeps an array as long as the largest id seen, or null to
+   * find nodes with a HashMap.
+   */
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  public PairingHeapFringe(ToIntFunction<Node> vertexOf) {
+    this.root = null;
+    this.size = 0;
+    this.vertexOf = vertexOf;
+    this.handleById = vertexOf == null ? null : new HeapNode[16];
+    this.handles = vertexOf == null ? new HashMap<>() : null;
+  }
+
+  @Override
+  public void add(Node node, double priority) {
+    HeapNode<Node> handle = handleOf(node);
+    if (handle != null) {
+      //decrease-key, keeping the lighter of the two
+      if (priority < handle.priority) {
+        handle.node = node;
+        handle.priority = priority;
+        if (handle != root) {
+          cut(handle);
+          root = meld(root, handle);
+        }
+      }
+      return;
+    }
+
+    handle = new HeapNode<>(node, priority);
+    setHandle(node, handle);
+    root = meld(root, handle);
+    size++;
+  }
+
+  @Override
+  public Node poll() {
+    if (root == null) {
+      return null;
+    }
+    HeapNode<Node> top = root;
+    setHandle(top.node, null);
+    size--;
+    root = mergePairs(top.child);
+    if (root != null) {
+      root.previous = null;
+    }
+    return top.node;
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public List<Node> peek(int count) {
+    //the root, then the roots that will be melded to replace it
+    List<Node> soonest = new ArrayList<>();
+    if (root != null && count > 0) {
+      soonest.add(root.node);
+      for (HeapNode<Node> next = root.child;
+           next != null && soonest.size() < count; next = next.sibling) {
+        soonest.add(next.node);
+      }
+    }
+    return soonest;
+  }
+
+  //returns node's handle, or null if it isn't waiting
+  private HeapNode<Node> handleOf(Node node) {
+    if (vertexOf == null) {
+      return handles.get(node);
+    }
+    int id = vertexOf.applyAsInt(node);
+    return id < handleById.length ? handleById[id] : null;
+  }
+
+  //records node's handle, null for not waiting
+  private void setHandle(Node node, HeapNode<Node> handle) {
+    if (vertexOf == null) {
+      if (handle == null) {
+        handles.remove(node);
+      } else {
+        handles.put(node, handle);
+      }
+      return;
+    }
+    int id = vertexOf.applyAsInt(node);
+    if (id >= handleById.length) {
+      handleById = Arrays.copyOf(handleById,
+                                 Math.max(id + 1, handleById.length * 2));
+    }
+    handleById[id] = handle;
+  }
+
+  //detaches handle and its subtree from its parent or left sibling
+  private void cut(HeapNode<Node> handle) {
+    HeapNode<Node> previous = handle.previous;
+    if (previous.child == handle) {
+      previous.child = handle.sibling;
+    } else {
+      previous.sibling = handle.sibling;
+    }
+    if (handle.sibling != null) {
+      handle.sibling.previous = previous;
+    }
+    handle.sibling = null;
+    handle.previous = null;
+  }
+
+  //makes the heavier of two roots the first child of the lighter one
+  private HeapNode<Node> meld(HeapNode<Node> one, HeapNode<Node> two) {
+    if (one == null) {
+      return two;
+    } else if (two == null) {
+      return one;
+    }
+    if (two.priority < one.priority) {
+      HeapNode<Node> swap = one;
+      one = two;
+      two = swap;
+    }
+    two.previous = one;
+    two.sibling = one.child;
+    if (one.child != null) {
+      one.child.previous = two;
+    }
+    one.child = two;
+    one.sibling = null;
+    one.previous = null;
+    return one;
+  }
+
+  //melds siblings in pairs from left to right, then melds the pairs from
+  //right to left
+  private HeapNode<Node> mergePairs(HeapNode<Node> first) {
+    List<HeapNode<Node>> pairs = new ArrayList<>();
+    while (first != null) {
+      HeapNode<Node> second = first.sibling;
+      HeapNode<Node> next = second == null ? null : second.sibling;
+      first.sibling = null;
+      first.previous = null;
+      if (second != null) {
+        second.sibling = null;
+        second.previous = null;
+      }
+      pairs.add(meld(first, second));
+      first = next;
+    }
+
+    HeapNode<Node> merged = null;
+    for (int i = pairs.size() - 1; i >= 0; i--) {
+      merged = meld(pairs.get(i), merged);
+    }
+    return merged;
+  }
+
+  private static final class HeapNode<Node> {
+    private Node node;
+    private double priority;
+    private HeapNode<Node> child;
+    private HeapNode<Node> sibling;
+    //the parent if this is a first child, otherwise the left sibling
+    private HeapNode<Node> previous;
+
+    HeapNode(Node node, double priority) {
+      this.node = node;
+      this.priority = priority;
+    }
+  }
+}
@@ -0,0 +1,15 @@
+package portfolio;
+
+/**
+ * Interface for being told what each findPath call did, e.g. to pass it on to
+ * a metrics system.
+ *
+ * @author Zachary Hoffman
+ */
+public interface SearchListener {
+  /** Called once a findPath call has finished, on the thread that ran it,
+   * whether or not it found a path or threw an error.
+   * @param stats What the search did.
+   */
+  void searchFinished(SearchStats stats);
+}
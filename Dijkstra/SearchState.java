@@ -0,0 +1,162 @@
+package portfolio;
+
+import java.util.Arrays;
+
+/**
+ * The arrays one thread searches a CsrGraph with, along with an indexed
+ * binary heap of the fringe that supports lowering a vertex's distance in
+ * place. Only the entries the last search touched are cleared by reset, so
+ * reusing one costs nothing for the rest of the graph.
+ *
+ * @author Zachary Hoffman
+ */
+final class SearchState {
+  private final double[] dist;
+  //what the heap is ordered by, the distance plus any estimate
+  private final double[] key;
+  private final int[] pred;
+  private final long[] settled;
+  private final int[] heap;
+  //where each vertex is in heap, or -1 if it is not in it
+  private final int[] heapIndex;
+  private int heapSize;
+  //the vertices whose entries the current search has changed
+  private final int[] touched;
+  private int numTouched;
+
+  SearchState(int numVertices) {
+    dist = new double[numVertices];
+    key = new double[numVertices];
+    pred = new int[numVertices];
+    settled = new long[(numVertices + 63) >>> 6];
+    heap = new int[numVertices];
+    heapIndex = new int[numVertices];
+    touched = new int[numVertices];
+    Arrays.fill(dist, Double.POSITIVE_INFINITY);
+    Arrays.fill(pred, -1);
+    Arrays.fill(heapIndex, -1);
+  }
+
+  //puts back the entries the last search changed
+  void reset() {
+    for (int i = 0; i < numTouched; i++) {
+      int vertex = touched[i];
+      dist[vertex] = Double.POSITIVE_INFINITY;
+      pred[vertex] = -1;
+      heapIndex[vertex] = -1;
+      settled[vertex >>> 6] = 0;
+    }
+    numTouched = 0;
+    heapSize = 0;
+  }
+
+  boolean isEmpty() {
+    return heapSize == 0;
+  }
+
+  //the smallest key waiting in the fringe
+  double peekKey() {
+    return key[heap[0]];
+  }
+
+  double getDist(int vertex) {
+    return dist[vertex];
+  }
+
+  int getPred(int vertex) {
+    return pred[vertex];
+  }
+
+  boolean isSettled(int vertex) {
+    return (settled[vertex >>> 6] & (1L << vertex)) != 0;
+  }
+
+  //lowers vertex's distance to newDist through from if that is shorter,
+  //adding it to the fringe if needed with estimate added to its key
+  void relax(int vertex, double newDist, int from, double estimate) {
+    if (newDist >= dist[vertex]) {
+      return;
+    }
+    if (dist[vertex] == Double.POSITIVE_INFINITY) {
+      touched[numTouched++] = vertex;
+    }
+    dist[vertex] = newDist;
+    key[vertex] = newDist + estimate;
+    pred[vertex] = from;
+    if (heapIndex[vertex] < 0) {
+      heapIndex[vertex] = heapSize;
+      heap[heapSize++] = vertex;
+    }
+    siftUp(heapIndex[vertex]);
+  }
+
+  //removes and settles the closest vertex in the fringe
+  int poll() {
+    int vertex = heap[0];
+    heapIndex[vertex] = -1;
+    heapSize--;
+    if (heapSize > 0) {
+      heap[0] = heap[heapSize];
+      heapIndex[heap[0]] = 0;
+      siftDown(0);
+    }
+    settled[vertex >>> 6] |= 1L << vertex;
+    return vertex;
+  }
+
+  //follows predecessors back from target to one of the sources
+  int[] path(int target) {
+    if (dist[target] == Double.POSITIVE_INFINITY) {
+      return new int[0];
+    }
+    int length = 0;
+    for (int v = target; v >= 0; v = pred[v]) {
+      length++;
+    }
+    int[] path = new int[length];
+    for (int v = target; v >= 0; v = pred[v]) {
+      path[--length] = v;
+    }
+    return path;
+  }
+
+  private void siftUp(int index) {
+    int vertex = heap[index];
+    double vertexKey = key[vertex];
+    while (index > 0) {
+      int parent = (index - 1) >>> 1;
+      int parentVertex = heap[parent];
+      if (key[parentVertex] <= vertexKey) {
+        break;
+      }
+      heap[index] = parentVertex;
+      heapIndex[parentVertex] = index;
+      index = parent;
+    }
+    heap[index] = vertex;
+    heapIndex[vertex] = index;
+  }
+
+  private void siftDown(int index) {
+    int vertex = heap[index];
+    double vertexKey = key[vertex];
+    while (true) {
+      int child = 2 * index + 1;
+      if (child >= heapSize) {
+        break;
+      }
+      int right = child + 1;
+      if (right < heapSize && key[heap[right]] < key[heap[child]]) {
+        child = right;
+      }
+      if (key[heap[child]] >= vertexKey) {
+        break;
+      }
+      heap[index] = heap[child];
+      heapIndex[heap[index]] = index;
+      index = child;
+    }
+    heap[index] = vertex;
+    heapIndex[vertex] = index;
+  }
+}
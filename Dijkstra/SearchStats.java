@@ -0,0 +1,107 @@
+package portfolio;
+
+/**
+ * Holds what one findPath call did, for working out why a search was slow.
+ * Dijkstra only counts these when it has a SearchListener to hand them to.
+ *
+ * @author Zachary Hoffman
+ */
+public final class SearchStats {
+  private long settled;
+  private long pushes;
+  private long stalePops;
+  private int peakFringeSize;
+  private long childrenNanos;
+  private long wallNanos;
+  private boolean found;
+
+  /** Constructs SearchStats with everything at zero.
+   */
+  public SearchStats() {
+
+  }
+
+  /** Returns the number of nodes expanded.
+   * @return The number of nodes expanded.
+   */
+  public long getSettled() {
+    return settled;
+  }
+
+  /** Returns the number of nodes added to the fringe.
+   * @return The number of nodes added to the fringe.
+   */
+  public long getPushes() {
+    return pushes;
+  }
+
+  /** Returns the number of nodes polled from the fringe and skipped, having
+   * already been expanded at the same or a lower weight.
+   * @return The number of stale nodes polled.
+   */
+  public long getStalePops() {
+    return stalePops;
+  }
+
+  /** Returns the most entries the fringe held at once.
+   * @return The peak size of the fringe.
+   */
+  public int getPeakFringeSize() {
+    return peakFringeSize;
+  }
+
+  /** Returns the time spent getting children, including waiting for ones
+   * being prefetched.
+   * @return The time spent getting children, in nanoseconds.
+   */
+  public long getChildrenNanos() {
+    return childrenNanos;
+  }
+
+  /** Returns the time the whole search took.
+   * @return The time the search took, in nanoseconds.
+   */
+  public long getWallNanos() {
+    return wallNanos;
+  }
+
+  /** Returns whether the search found a path.
+   * @return True if a path was found.
+   */
+  public boolean isFound() {
+    return found;
+  }
+
+  void addSettled() {
+    settled++;
+  }
+
+  void addPush(int fringeSize) {
+    pushes++;
+    peakFringeSize = Math.max(peakFringeSize, fringeSize);
+  }
+
+  void addStalePop() {
+    stalePops++;
+  }
+
+  void addChildrenNanos(long nanos) {
+    childrenNanos += nanos;
+  }
+
+  void finish(long wallNanos, boolean found) {
+    this.wallNanos = wallNanos;
+    this.found = found;
+  }
+
+  @Override
+  public String toString() {
+    return "SearchStats{settled=" + settled
+           + ", pushes=" + pushes
+           + ", stalePops=" + stalePops
+           + ", peakFringeSize=" + peakFringeSize
+           + ", childrenNanos=" + childrenNanos
+           + ", wallNanos=" + wallNanos
+           + ", found=" + found + "}";
+  }
+}
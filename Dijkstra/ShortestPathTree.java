@@ -0,0 +1,231 @@
+package portfolio;
+
+import java.util.List;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.function.Function;
+
+/**
+ * Runs Dijkstra's algorithm from some start nodes a bit at a time, keeping
+ * everything it has settled so that many goals can be found from the same
+ * start for about the cost of one search.
+ * <p> A goal that has already been settled is answered from what is kept,
+ * and one that hasn't carries on the search from where the last one paused.
+ * Nodes are settled in order of weight, so the first settled node a goal
+ * matches is the nearest, just as in findPath. Each settled node's parent is
+ * its parent in the shortest path tree. No heuristic is used, as a heuristic
+ * would steer the search towards just one goal.
+ *
+ * @author Zachary Hoffman
+ * @param <Node> A node that implements DijkstraUsable.
+ * @param <Goal> The value that the end node should return true for isGoal().
+ */
+public final class ShortestPathTree<
+    Node extends DijkstraUsable<Node, Goal>, Goal> {
+  private final Fringe<Node> fringe;
+  private final AdjacencyCache<Node> cache;
+  //settled nodes in the order they were settled, and by vertex
+  private final List<Node> order;
+  private final HashMap<Node, Node> settled;
+  //the last node settled, if the search paused before expanding it
+  private Node unexpanded;
+  //the goal each node is, if known, and the first node settled for each
+  //goal, which is every settled goal when goalOf is known and otherwise
+  //just the goals asked for so far
+  private final Function<Node, Goal> goalOf;
+  private final HashMap<Goal, Node> byGoal;
+  //how many nodes of order have had their goal indexed
+  private int indexed;
+  //how many nodes of order each goal not found yet was checked against
+  private final HashMap<Goal, Integer> scanned;
+
+  /** Constructs a ShortestPathTree that hasn't settled anything yet. Each
+   * goal that wasn't asked for before is checked against every node settled
+   * so far, so prefer the constructor taking goalOf for many goals.
+   * @param start A list of nodes to start searching from.
+   */
+  public ShortestPathTree(List<Node> start) {
+    this(start, new LazyFringe<>(), null, null);
+  }
+
+  /** Constructs a ShortestPathTree that hasn't settled anything yet and
+   * looks up settled goals in a hash table rather than calling isGoal.
+   * @param start A list of nodes to start searching from.
+   * @param goalOf Returns the goal a node is, such that node.isGoal(goal)
+   * is true exactly when goalOf.apply(node) equals goal.
+   */
+  public ShortestPathTree(List<Node> start, Function<Node, Goal> goalOf) {
+    this(start, new LazyFringe<>(), null, goalOf);
+  }
+
+  /** Constructs a ShortestPathTree that keeps the nodes waiting to be
+   * settled in the given fringe and gets children through the given cache.
+   * @param start A list of nodes to start searching from.
+   * @param fringe An empty fringe.
+   * @param cache The cache to get children through, or null to call
+   * getChildren.
+   * @param goalOf Returns the goal a node is, or null to call isGoal.
+   */
+  ShortestPathTree(List<Node> start,
+                   Fringe<Node> fringe,
+                   AdjacencyCache<Node> cache,
+                   Function<Node, Goal> goalOf) {
+    this.fringe = fringe;
+    this.cache = cache;
+    this.order = new ArrayList<>();
+    this.settled = new HashMap<>();
+    this.unexpanded = null;
+    this.goalOf = goalOf;
+    this.byGoal = new HashMap<>();
+    this.indexed = 0;
+    this.scanned = new HashMap<>();
+    for (Node node : start) {
+      fringe.add(node, node.getWeight());
+    }
+  }
+
+  /** Finds the shortest path from the start nodes to a goal, searching
+   * further only if no node settled so far is the goal. Goals found before
+   * are answered straight from a hash table, and a goal asked for again is
+   * only checked against nodes settled since it was last asked for.
+   * @param finish A representation of the node being searched for.
+   * @return A list of nodes representing the path.
+   * @throws RuntimeException If the node's isGoal/getChildren methods throw
+   * an error, this will rethrow the errors.
+   */
+  public List<Node> findPath(Goal finish) throws RuntimeException {
+    try {
+      index();
+      Node found = byGoal.get(finish);
+      if (found == null && goalOf == null) {
+        //without goalOf only a scan can tell if a settled node is the goal,
+        //so only check the nodes settled since this goal was last asked for
+        int from = scanned.getOrDefault(finish, 0);
+        for (int i = from; i < order.size() && found == null; i++) {
+          if (order.get(i).isGoal(finish)) {
+            found = order.get(i);
+          }
+        }
+      }
+      while (found == null) {
+        Node selected = settleNext();
+        if (selected == null) {
+          scanned.put(finish, order.size());
+          return new ArrayList<>();
+        }
+        if (goalOf == null) {
+          if (selected.isGoal(finish)) {
+            found = selected;
+          }
+        } else {
+          index();
+          if (byGoal.get(finish) == selected) {
+            found = selected;
+          }
+        }
+      }
+      scanned.remove(finish);
+      byGoal.putIfAbsent(finish, found);
+      return path(found);
+    } catch (Exception e) {
+      e.printStackTrace();
+      throw new RuntimeException(e);
+    }
+  }
+
+  /** Returns the node settled for a vertex, whose weight is the length of
+   * the shortest path to it.
+   * @param node A node for the vertex to look up.
+   * @return The settled node equal to node, or null if it hasn't been settled
+   * yet.
+   */
+  public Node getSettled(Node node) {
+    return settled.get(node);
+  }
+
+  /** Returns every node settled so far, in the order they were settled.
+   * @return The settled nodes, which can't be changed.
+   */
+  public List<Node> getSettled() {
+    return Collections.unmodifiableList(order);
+  }
+
+  /** Searches until every node reachable from the start nodes is settled.
+   * @return Every node in the shortest path tree, in the order they were
+   * settled, which can't be changed.
+   * @throws RuntimeException If the node's getChildren methods throw an
+   * error, this will rethrow the errors.
+   */
+  public List<Node> complete() throws RuntimeException {
+    try {
+      while (settleNext() != null) {
+        continue;
+      }
+    } catch (Exception e) {
+      e.printStackTrace();
+      throw new RuntimeException(e);
+    }
+    return getSettled();
+  }
+
+  /** Returns whether every reachable node has been settled.
+   * @return True if there is nothing left to search.
+   */
+  public boolean isComplete() {
+    return unexpanded == null && fringe.size() == 0;
+  }
+
+  // expands the last node settled if that hasn't been done, then settles the
+  // next node, returning it or null if there are none left
+  private Node settleNext() throws Exception {
+    if (unexpanded != null) {
+      Node expanding = unexpanded;
+      List<Node> children;
+      if (cache == null) {
+        children = expanding.getChildren();
+      } else {
+        children = cache.getChildren(expanding);
+      }
+      //only clear it once its children are in, so an error can be retried
+      unexpanded = null;
+      for (Node child : children) {
+        if (!settled.containsKey(child)) {
+          fringe.add(child, child.getWeight());
+        }
+      }
+    }
+
+    while (fringe.size() > 0) {
+      Node selected = fringe.poll();
+      if (!settled.containsKey(selected)) {
+        settled.put(selected, selected);
+        order.add(selected);
+        unexpanded = selected;
+        return selected;
+      }
+    }
+    return null;
+  }
+
+  // adds the goal of every node settled since the last call to byGoal if
+  // goalOf is known
+  private void index() {
+    if (goalOf != null) {
+      while (indexed < order.size()) {
+        Node next = order.get(indexed++);
+        byGoal.putIfAbsent(goalOf.apply(next), next);
+      }
+    }
+  }
+
+  // returns a lists representing the path to the given node
+  private List<Node> path(Node curnode) {
+    List<Node> nodePath = new ArrayList<>();
+    for (Node node = curnode; node != null; node = node.getParent()) {
+      nodePath.add(node);
+    }
+    Collections.reverse(nodePath);
+    return nodePath;
+  }
+}
@@ -0,0 +1,53 @@
+package portfolio;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Holds the answer to a FlatKDTree approximate nearest neighbor search: the
+ * nodes found, how many points the search checked, and whether it was cut
+ * short by its check limit. Only an answer that isn't truncated carries the
+ * 1 + epsilon bound the search was asked for.
+ *
+ * @author Zachary Hoffman
+ * @param <Node> A object that implements the interface KDInsertable.
+ */
+public final class ApproximateNeighbors<Node extends KDInsertable<Node>> {
+  private final List<Node> neighbors;
+  private final int checks;
+  private final boolean truncated;
+
+  /** Constructs an ApproximateNeighbors from a search's results.
+   * @param neighbors The nodes found, furthest first.
+   * @param checks The number of points the search checked.
+   * @param truncated Whether the check limit stopped the search early.
+   */
+  ApproximateNeighbors(List<Node> neighbors, int checks, boolean truncated) {
+    this.neighbors = Collections.unmodifiableList(neighbors);
+    this.checks = checks;
+    this.truncated = truncated;
+  }
+
+  /** Returns the nodes found, furthest first.
+   * @return The nodes found, which can't be changed.
+   */
+  public List<Node> getNeighbors() {
+    return neighbors;
+  }
+
+  /** Returns how many points the search checked the distance of.
+   * @return The number of points checked, at most the check limit.
+   */
+  public int getChecks() {
+    return checks;
+  }
+
+  /** Returns whether the search hit its check limit while some subtree left
+   * could still have held a closer node. If so, the nodes found have no
+   * bound on how far they are from the true nearest neighbors.
+   * @return True if the check limit cut the search short.
+   */
+  public boolean isTruncated() {
+    return truncated;
+  }
+}
@@ -0,0 +1,111 @@
+package portfolio;
+
+import java.util.Arrays;
+
+/**
+ * Holds the subtrees of a FlatKDTree a best-bin-first search has yet to
+ * visit, as a min-heap on the smallest squared distance any point in each
+ * could be from the target. Each subtree is the range of positions [lo, hi)
+ * and the axis its root splits on. Everything is kept in primitive arrays
+ * that are reused from one search to the next.
+ *
+ * @author Zachary Hoffman
+ */
+final class BranchQueue {
+  private double[] bounds;
+  private int[] ranges;
+  private int size;
+
+  BranchQueue() {
+    this.bounds = new double[64];
+    this.ranges = new int[3 * 64];
+    this.size = 0;
+  }
+
+  void clear() {
+    size = 0;
+  }
+
+  boolean isEmpty() {
+    return size == 0;
+  }
+
+  /** Returns the bound of the closest subtree waiting.
+   * @return The smallest bound in the queue.
+   */
+  double peekBound() {
+    return bounds[0];
+  }
+
+  /** Adds a subtree.
+   * @param bound The smallest squared distance a point in it could be.
+   * @param lo The subtree's first position.
+   * @param hi One past the subtree's last position.
+   * @param axis The axis the subtree's root splits on.
+   */
+  void add(double bound, int lo, int hi, int axis) {
+    if (size == bounds.length) {
+      bounds = Arrays.copyOf(bounds, size * 2);
+      ranges = Arrays.copyOf(ranges, 3 * size * 2);
+    }
+    int index = size++;
+    while (index > 0) {
+      int parent = (index - 1) >>> 1;
+      if (bounds[parent] <= bound) {
+        break;
+      }
+      move(parent, index);
+      index = parent;
+    }
+    set(index, bound, lo, hi, axis);
+  }
+
+  /** Removes the closest subtree, copying its range and axis into range.
+   * @param range Gets the subtree's lo, hi and axis.
+   */
+  void poll(int[] range) {
+    range[0] = ranges[0];
+    range[1] = ranges[1];
+    range[2] = ranges[2];
+    size--;
+    if (size == 0) {
+      return;
+    }
+
+    //sift the last subtree down from the top
+    double bound = bounds[size];
+    int lo = ranges[3 * size];
+    int hi = ranges[3 * size + 1];
+    int axis = ranges[3 * size + 2];
+    int index = 0;
+    while (true) {
+      int child = 2 * index + 1;
+      if (child >= size) {
+        break;
+      }
+      if (child + 1 < size && bounds[child + 1] < bounds[child]) {
+        child++;
+      }
+      if (bounds[child] >= bound) {
+        break;
+      }
+      move(child, index);
+      index = child;
+    }
+    set(index, bound, lo, hi, axis);
+  }
+
+  private void move(int from, int to) {
+    bounds[to] = bounds[from];
+    ranges[3 * to] = ranges[3 * from];
+    ranges[3 * to + 1] = ranges[3 * from + 1];
+    ranges[3 * to + 2] = ranges[3 * from + 2];
+  }
+
+  private void set(int index, double bound, int lo, int hi, int axis) {
+    bounds[index] = bound;
+    ranges[3 * index] = lo;
+    ranges[3 * index + 1] = hi;
+    ranges[3 * index + 2] = axis;
+  }
+}
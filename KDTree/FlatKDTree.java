@@ -0,0 +1,678 @@
+package portfolio;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.stream.IntStream;
+
+/**
+ * Represents a k-d tree whose points are held in flat primitive arrays rather
+ * than linked through the nodes themselves.
+ * <p> Every coordinate lives in one double array, point after point. The tree
+ * is implicit: the points between lo and hi form a subtree whose root is the
+ * median at (lo + hi) / 2, split on depth % dimensions, with its left subtree
+ * before it and its right subtree after it. Nodes are only read when the
+ * tree is built and are handed back from a parallel array, so their
+ * parent, children and split dimension are never touched and searches never
+ * box a coordinate.
+ * <p> A FlatKDTree never changes once built, so any number of threads can
+ * search it at once. Each search borrows buffers from a pool and gives them
+ * back when it finishes, so there are only ever as many as there have been
+ * searches running at once. A radius search's buffers grow to hold its
+ * largest answer, which on a big tree can be tens of megabytes, so close()
+ * lets go of the pooled buffers.
+ *
+ * @author Zachary Hoffman
+ * @param <Node> A object that implements the interface KDInsertable.
+ */
+public final class FlatKDTree<Node extends KDInsertable<Node>>
+    implements AutoCloseable {
+  //subtrees this small are scanned rather than split further
+  private static final int LEAF_SIZE = 8;
+  //how many queries of a batch one task searches in a row
+  private static final int BATCH_CHUNK = 64;
+
+  private final int dimensions;
+  private final int size;
+  //the coordinates of the point at position i are at i * dimensions onwards
+  private final double[] coords;
+  //the node at each position and where it was in the list built from
+  private final Object[] nodes;
+  private final int[] ids;
+  //search buffers not in use by a query right now
+  private final ConcurrentLinkedQueue<Scratch> scratch;
+
+  /** Given a list of nodes, constructs a FlatKDTree of their locations.
+   * @param nodeList The nodes to put in the tree, which is left unchanged.
+   */
+  public FlatKDTree(List<Node> nodeList) {
+    this.size = nodeList.size();
+    this.dimensions = size == 0 ? 0 : nodeList.get(0).getLocation().size();
+
+    //read every location once, then arrange the points by position
+    double[] raw = new double[size * dimensions];
+    for (int i = 0; i < size; i++) {
+      List<Double> location = nodeList.get(i).getLocation();
+      if (location.size() != dimensions) {
+        throw new IllegalArgumentException("Node " + i + " has "
+                                           + location.size()
+                                           + " dimensions, not "
+                                           + dimensions);
+      }
+      for (int d = 0; d < dimensions; d++) {
+        raw[i * dimensions + d] = location.get(d);
+      }
+    }
+    int[] order = new int[size];
+    for (int i = 0; i < size; i++) {
+      order[i] = i;
+    }
+    arrange(raw, order, 0, size, 0);
+
+    this.coords = new double[size * dimensions];
+    this.nodes = new Object[size];
+    this.ids = order;
+    for (int i = 0; i < size; i++) {
+      System.arraycopy(raw, order[i] * dimensions, coords, i * dimensions,
+                       dimensions);
+      nodes[i] = nodeList.get(order[i]);
+    }
+    this.scratch = new ConcurrentLinkedQueue<>();
+  }
+
+  //takes search buffers from the pool, making some if they are all in use
+  private Scratch acquire() {
+    Scratch buffers = scratch.poll();
+    if (buffers == null) {
+      buffers = new Scratch();
+    }
+    return buffers;
+  }
+
+  //gives search buffers back to the pool once a query is done with them
+  private void release(Scratch buffers) {
+    scratch.offer(buffers);
+  }
+
+  /** Lets go of the buffers kept for reuse between searches, so the memory
+   * can be reclaimed. The tree can still be searched afterwards, and
+   * searches running at the time keep theirs until they finish.
+   */
+  @Override
+  public void close() {
+    scratch.clear();
+  }
+
+  //puts the median of order[lo, hi) at the middle, smaller ones before it
+  //and larger ones after it, then does the same to both sides
+  private void arrange(double[] raw, int[] order, int lo, int hi, int axis) {
+    while (hi - lo > LEAF_SIZE) {
+      int mid = (lo + hi) >>> 1;
+      Quickselect.select(raw, dimensions, order, lo, hi, mid, axis);
+      int next = axis + 1 == dimensions ? 0 : axis + 1;
+      arrange(raw, order, lo, mid, next);
+      lo = mid + 1;
+      axis = next;
+    }
+  }
+
+  /** Returns the number of points in the tree.
+   * @return The number of points in the tree.
+   */
+  public int size() {
+    return size;
+  }
+
+  /** Returns the number of dimensions the points have.
+   * @return The number of dimensions.
+   */
+  public int getDimensions() {
+    return dimensions;
+  }
+
+  /** Returns the node at a position in the tree.
+   * @param position The position, from 0 to size() - 1.
+   * @return The node at that position.
+   */
+  @SuppressWarnings("unchecked")
+  public Node getNode(int position) {
+    return (Node) nodes[position];
+  }
+
+  /** Returns where the node at a position was in the list the tree was built
+   * from.
+   * @param position The position, from 0 to size() - 1.
+   * @return The node's index in the original list.
+   */
+  public int getId(int position) {
+    return ids[position];
+  }
+
+  /** Given a number of nodes to search for, and a location to search at,
+   * returns the nodes closest to the location, furthest first as
+   * KDTree.nearestNeighbors does.
+   * @param numNeighbors The number of nodes to search for.
+   * @param targetLocation The location to search around.
+   * @return A list of the nearest nodes to targetLocation, of length
+   * numNeighbors unless there are fewer nodes in the tree.
+   */
+  public List<Node> nearestNeighbors(int numNeighbors,
+                                     double[] targetLocation) {
+    checkLocation(targetLocation);
+    Scratch buffers = acquire();
+    try {
+      NeighborHeap heap = buffers.heap;
+      heap.reset(Math.min(numNeighbors, size));
+      nearest(targetLocation, heap, 0, size, 0);
+      int[] found = new int[heap.size()];
+      heap.drain(found, null, 0);
+      return toNodes(found, found.length);
+    } finally {
+      release(buffers);
+    }
+  }
+
+  /** Same as nearestNeighbors with a double array, for a location given as a
+   * list.
+   * @param numNeighbors The number of nodes to search for.
+   * @param targetLocation The location to search around.
+   * @return A list of the nearest nodes to targetLocation.
+   */
+  public List<Node> nearestNeighbors(int numNeighbors,
+                                     List<Double> targetLocation) {
+    return nearestNeighbors(numNeighbors, toArray(targetLocation));
+  }
+
+  /** Given a radius and a location, returns every node within radius of the
+   * location, furthest first as KDTree.radiusSearch does.
+   * @param radius The distance to search within.
+   * @param targetLocation The location to search around.
+   * @return A list of the nodes within radius of targetLocation.
+   */
+  public List<Node> radiusSearch(double radius, double[] targetLocation) {
+    checkLocation(targetLocation);
+    Scratch buffers = acquire();
+    try {
+      within(targetLocation, radius * radius, buffers);
+      return toNodes(buffers.found, buffers.count);
+    } finally {
+      release(buffers);
+    }
+  }
+
+  /** Same as radiusSearch with a double array, for a location given as a
+   * list.
+   * @param radius The distance to search within.
+   * @param targetLocation The location to search around.
+   * @return A list of the nodes within radius of targetLocation.
+   */
+  public List<Node> radiusSearch(double radius, List<Double> targetLocation) {
+    return radiusSearch(radius, toArray(targetLocation));
+  }
+
+  /** Finds nodes close to a location, trading accuracy for speed when the
+   * points have too many dimensions for an exact search to prune much.
+   * <p> Subtrees are visited best bin first, closest possible point first,
+   * and a subtree is skipped unless it could hold a point closer than the
+   * current furthest neighbor divided by 1 + epsilon. The search also stops
+   * after checking maxChecks points, in which case the answer is marked
+   * truncated. Only an answer that isn't truncated is guaranteed to have
+   * its i-th node within 1 + epsilon of the true i-th neighbor's distance;
+   * a truncated one has no bound, so check its recall on sample queries.
+   * An epsilon of 0 with no check limit gives the exact answer.
+   * @param numNeighbors The number of nodes to search for.
+   * @param targetLocation The location to search around.
+   * @param epsilon How far from exact the answer may be, at least 0.
+   * @param maxChecks The most points to check the distance of.
+   * @return The nodes near targetLocation, furthest first, with how many
+   * points were checked and whether maxChecks cut the search short.
+   */
+  public ApproximateNeighbors<Node> approximateNeighbors(
+      int numNeighbors, double[] targetLocation, double epsilon,
+      int maxChecks) {
+    if (!(epsilon >= 0)) {
+      throw new IllegalArgumentException("epsilon must not be negative");
+    }
+    checkLocation(targetLocation);
+    Scratch buffers = acquire();
+    try {
+      NeighborHeap heap = buffers.heap;
+      heap.reset(Math.min(numNeighbors, size));
+      boolean truncated = bestBinFirst(targetLocation,
+                                       (1 + epsilon) * (1 + epsilon),
+                                       maxChecks, buffers);
+      int[] found = new int[heap.size()];
+      heap.drain(found, null, 0);
+      return new ApproximateNeighbors<>(toNodes(found, found.length),
+                                        buffers.checks, truncated);
+    } finally {
+      release(buffers);
+    }
+  }
+
+  /** Works out the recall of an approximate answer: the share of the true
+   * nearest neighbors it found. This runs an exact search, so it is meant
+   * for checking a sample of queries while tuning epsilon and maxChecks.
+   * An answer that isn't truncated and was searched with an epsilon of 0
+   * always has a recall of 1; otherwise recall is the only measure of how
+   * good it is.
+   * @param numNeighbors The number of nodes searched for.
+   * @param targetLocation The location searched around.
+   * @param found The answer approximateNeighbors returned for them.
+   * @return The share of found's neighbors, from 0 to 1, that are no
+   * further than the true numNeighbors-th nearest node, or 1 if there was
+   * nothing to find.
+   */
+  public double recall(int numNeighbors,
+                       double[] targetLocation,
+                       ApproximateNeighbors<Node> found) {
+    List<Node> exact = nearestNeighbors(numNeighbors, targetLocation);
+    if (exact.isEmpty()) {
+      return 1;
+    }
+    //comparing distances rather than nodes counts ties as found
+    double kthDist = squaredDistance(targetLocation, exact.get(0));
+    int hits = 0;
+    for (Node node : found.getNeighbors()) {
+      if (squaredDistance(targetLocation, node) <= kthDist) {
+        hits++;
+      }
+    }
+    return Math.min(1.0, (double) hits / exact.size());
+  }
+
+  private static double squaredDistance(double[] target, KDInsertable<?> node) {
+    List<Double> location = node.getLocation();
+    double total = 0;
+    for (int d = 0; d < target.length; d++) {
+      double diff = target[d] - location.get(d);
+      total += diff * diff;
+    }
+    return total;
+  }
+
+  //visits subtrees closest bound first, going straight down to a leaf from
+  //each and queueing the far side of every split passed, until no subtree
+  //left could improve the answer by more than the slack or maxChecks points
+  //have been checked, returning true if maxChecks stopped it with points
+  //left that could have improved the answer
+  private boolean bestBinFirst(double[] target, double slack, int maxChecks,
+                               Scratch buffers) {
+    NeighborHeap heap = buffers.heap;
+    BranchQueue queue = buffers.queue;
+    int[] range = buffers.range;
+    queue.clear();
+    queue.add(0, 0, size, 0);
+    int checks = 0;
+    boolean truncated = false;
+    while (!queue.isEmpty()) {
+      double bound = queue.peekBound();
+      if (bound * slack >= heap.worst()) {
+        break;
+      }
+      if (checks >= maxChecks) {
+        truncated = true;
+        break;
+      }
+      queue.poll(range);
+      int lo = range[0];
+      int hi = range[1];
+      int axis = range[2];
+
+      while (hi - lo > LEAF_SIZE && checks < maxChecks) {
+        int mid = (lo + hi) >>> 1;
+        heap.offer(mid, distSquared(target, mid));
+        checks++;
+        double diff = target[axis] - coords[mid * dimensions + axis];
+        int next = axis + 1 == dimensions ? 0 : axis + 1;
+        double farBound = Math.max(bound, diff * diff);
+        if (diff < 0) {
+          if (farBound * slack < heap.worst()) {
+            queue.add(farBound, mid + 1, hi, next);
+          }
+          hi = mid;
+        } else {
+          if (farBound * slack < heap.worst()) {
+            queue.add(farBound, lo, mid, next);
+          }
+          lo = mid + 1;
+        }
+        axis = next;
+      }
+      int i = lo;
+      for (; i < hi && checks < maxChecks; i++) {
+        heap.offer(i, distSquared(target, i));
+        checks++;
+      }
+      if (i < hi) {
+        truncated = true;
+        break;
+      }
+    }
+    buffers.checks = checks;
+    return truncated;
+  }
+
+  /** Finds the nearest neighbors of many locations at once, spread across
+   * every core. Locations are sorted by where they fall in the tree first so
+   * that queries searched together touch the same parts of it.
+   * @param numNeighbors The number of nodes to search for per location.
+   * @param targetLocations The locations to search around.
+   * @return The ids and distances of each location's nearest nodes, in the
+   * same order as targetLocations.
+   */
+  public NeighborTable nearestNeighbors(int numNeighbors,
+                                        double[][] targetLocations) {
+    for (double[] targetLocation : targetLocations) {
+      checkLocation(targetLocation);
+    }
+    int perQuery = Math.max(0, Math.min(numNeighbors, size));
+    int numQueries = targetLocations.length;
+    int[] first = new int[numQueries + 1];
+    for (int q = 0; q <= numQueries; q++) {
+      first[q] = q * perQuery;
+    }
+    int[] foundIds = new int[numQueries * perQuery];
+    double[] distances = new double[numQueries * perQuery];
+
+    int[] order = localityOrder(targetLocations);
+    IntStream.range(0, chunks(numQueries)).parallel().forEach(chunk -> {
+      Scratch buffers = acquire();
+      try {
+        NeighborHeap heap = buffers.heap;
+        int end = Math.min(numQueries, (chunk + 1) * BATCH_CHUNK);
+        for (int i = chunk * BATCH_CHUNK; i < end; i++) {
+          int query = order[i];
+          heap.reset(perQuery);
+          nearest(targetLocations[query], heap, 0, size, 0);
+          int offset = first[query];
+          heap.drain(foundIds, distances, offset);
+          toIdsAndDistances(foundIds, distances, offset, perQuery);
+        }
+      } finally {
+        release(buffers);
+      }
+    });
+    return new NeighborTable(first, foundIds, distances);
+  }
+
+  /** Finds every node within a radius of many locations at once, spread
+   * across every core, with queries sorted as in the batch nearestNeighbors.
+   * @param radius The distance to search within.
+   * @param targetLocations The locations to search around.
+   * @return The ids and distances of the nodes within radius of each
+   * location, in the same order as targetLocations.
+   */
+  public NeighborTable radiusSearch(double radius,
+                                    double[][] targetLocations) {
+    for (double[] targetLocation : targetLocations) {
+      checkLocation(targetLocation);
+    }
+    int numQueries = targetLocations.length;
+    int[][] queryIds = new int[numQueries][];
+    double[][] queryDistances = new double[numQueries][];
+
+    int[] order = localityOrder(targetLocations);
+    IntStream.range(0, chunks(numQueries)).parallel().forEach(chunk -> {
+      Scratch buffers = acquire();
+      try {
+        int end = Math.min(numQueries, (chunk + 1) * BATCH_CHUNK);
+        for (int i = chunk * BATCH_CHUNK; i < end; i++) {
+          int query = order[i];
+          within(targetLocations[query], radius * radius, buffers);
+          queryIds[query] = Arrays.copyOf(buffers.found, buffers.count);
+          queryDistances[query] =
+              Arrays.copyOf(buffers.dists, buffers.count);
+          toIdsAndDistances(queryIds[query], queryDistances[query], 0,
+                            buffers.count);
+        }
+      } finally {
+        release(buffers);
+      }
+    });
+
+    //lay every query's answers out one after another
+    int[] first = new int[numQueries + 1];
+    for (int q = 0; q < numQueries; q++) {
+      first[q + 1] = first[q] + queryIds[q].length;
+    }
+    int[] foundIds = new int[first[numQueries]];
+    double[] distances = new double[first[numQueries]];
+    for (int q = 0; q < numQueries; q++) {
+      System.arraycopy(queryIds[q], 0, foundIds, first[q],
+                       queryIds[q].length);
+      System.arraycopy(queryDistances[q], 0, distances, first[q],
+                       queryDistances[q].length);
+    }
+    return new NeighborTable(first, foundIds, distances);
+  }
+
+  private static int chunks(int numQueries) {
+    return (numQueries + BATCH_CHUNK - 1) / BATCH_CHUNK;
+  }
+
+  //turns positions and squared distances into ids and distances in place
+  private void toIdsAndDistances(int[] positions, double[] dists, int offset,
+                                 int count) {
+    for (int i = offset; i < offset + count; i++) {
+      positions[i] = ids[positions[i]];
+      dists[i] = Math.sqrt(dists[i]);
+    }
+  }
+
+  //returns the queries ordered by the leaf each falls in, so that queries
+  //near each other in space are searched one after another
+  private int[] localityOrder(double[][] targetLocations) {
+    long[] keys = new long[targetLocations.length];
+    for (int q = 0; q < keys.length; q++) {
+      keys[q] = ((long) leafOf(targetLocations[q]) << 32) | q;
+    }
+    Arrays.sort(keys);
+    int[] order = new int[keys.length];
+    for (int i = 0; i < order.length; i++) {
+      order[i] = (int) keys[i];
+    }
+    return order;
+  }
+
+  //returns the first position of the leaf a location falls in
+  private int leafOf(double[] target) {
+    int lo = 0;
+    int hi = size;
+    int axis = 0;
+    while (hi - lo > LEAF_SIZE) {
+      int mid = (lo + hi) >>> 1;
+      if (target[axis] < coords[mid * dimensions + axis]) {
+        hi = mid;
+      } else {
+        lo = mid + 1;
+      }
+      axis = axis + 1 == dimensions ? 0 : axis + 1;
+    }
+    return lo;
+  }
+
+  //collects every position within the squared radius of target into
+  //buffers, furthest first
+  private void within(double[] target, double radiusSquared,
+                      Scratch buffers) {
+    buffers.count = 0;
+    //an explicit stack of subtrees, as lo, hi and axis
+    int[] stack = buffers.stack;
+    int top = 0;
+    stack[top++] = 0;
+    stack[top++] = size;
+    stack[top++] = 0;
+    while (top > 0) {
+      int axis = stack[--top];
+      int hi = stack[--top];
+      int lo = stack[--top];
+      if (hi - lo <= LEAF_SIZE) {
+        for (int i = lo; i < hi; i++) {
+          double dist = distSquared(target, i);
+          if (dist <= radiusSquared) {
+            buffers.add(i, dist);
+          }
+        }
+        continue;
+      }
+
+      int mid = (lo + hi) >>> 1;
+      double dist = distSquared(target, mid);
+      if (dist <= radiusSquared) {
+        buffers.add(mid, dist);
+      }
+      double diff = target[axis] - coords[mid * dimensions + axis];
+      int next = axis + 1 == dimensions ? 0 : axis + 1;
+      if (diff <= 0 || diff * diff <= radiusSquared) {
+        stack[top++] = lo;
+        stack[top++] = mid;
+        stack[top++] = next;
+      }
+      if (diff >= 0 || diff * diff <= radiusSquared) {
+        stack[top++] = mid + 1;
+        stack[top++] = hi;
+        stack[top++] = next;
+      }
+    }
+    sortFurthestFirst(buffers.found, buffers.dists, buffers.count);
+  }
+
+  //searches the subtree of positions [lo, hi) split on axis, visiting the
+  //side of the split the target is on first
+  void nearest(double[] target, NeighborHeap heap, int lo, int hi,
+               int axis) {
+    if (hi - lo <= LEAF_SIZE) {
+      for (int i = lo; i < hi; i++) {
+        heap.offer(i, distSquared(target, i));
+      }
+      return;
+    }
+
+    int mid = (lo + hi) >>> 1;
+    heap.offer(mid, distSquared(target, mid));
+    double diff = target[axis] - coords[mid * dimensions + axis];
+    int next = axis + 1 == dimensions ? 0 : axis + 1;
+    if (diff < 0) {
+      nearest(target, heap, lo, mid, next);
+      if (diff * diff < heap.worst()) {
+        nearest(target, heap, mid + 1, hi, next);
+      }
+    } else {
+      nearest(target, heap, mid + 1, hi, next);
+      if (diff * diff < heap.worst()) {
+        nearest(target, heap, lo, mid, next);
+      }
+    }
+  }
+
+  //returns the squared distance between target and the point at position
+  double distSquared(double[] target, int position) {
+    double total = 0;
+    int base = position * dimensions;
+    for (int d = 0; d < dimensions; d++) {
+      double diff = target[d] - coords[base + d];
+      total += diff * diff;
+    }
+    return total;
+  }
+
+  private void checkLocation(double[] targetLocation) {
+    if (size > 0 && targetLocation.length != dimensions) {
+      throw new IllegalArgumentException("Location has "
+                                         + targetLocation.length
+                                         + " dimensions, not " + dimensions);
+    }
+  }
+
+  private static double[] toArray(List<Double> location) {
+    double[] array = new double[location.size()];
+    for (int i = 0; i < array.length; i++) {
+      array[i] = location.get(i);
+    }
+    return array;
+  }
+
+  private List<Node> toNodes(int[] positions, int count) {
+    List<Node> nodeList = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      nodeList.add(getNode(positions[i]));
+    }
+    return nodeList;
+  }
+
+  //sorts positions by their distances, largest first, with an insertion
+  //sort for short runs and a quicksort above that
+  private static void sortFurthestFirst(int[] positions, double[] dists,
+                                        int count) {
+    quicksort(positions, dists, 0, count - 1);
+  }
+
+  private static void quicksort(int[] positions, double[] dists, int lo,
+                                int hi) {
+    while (hi - lo > 16) {
+      double pivot = dists[(lo + hi) >>> 1];
+      int i = lo;
+      int j = hi;
+      while (i <= j) {
+        while (dists[i] > pivot) {
+          i++;
+        }
+        while (dists[j] < pivot) {
+          j--;
+        }
+        if (i <= j) {
+          swapPair(positions, dists, i++, j--);
+        }
+      }
+      //recurse into the smaller side to keep the stack shallow
+      if (j - lo < hi - i) {
+        quicksort(positions, dists, lo, j);
+        lo = i;
+      } else {
+        quicksort(positions, dists, i, hi);
+        hi = j;
+      }
+    }
+    for (int i = lo + 1; i <= hi; i++) {
+      for (int j = i; j > lo && dists[j - 1] < dists[j]; j--) {
+        swapPair(positions, dists, j - 1, j);
+      }
+    }
+  }
+
+  private static void swapPair(int[] positions, double[] dists, int one,
+                               int two) {
+    int position = positions[one];
+    positions[one] = positions[two];
+    positions[two] = position;
+    double dist = dists[one];
+    dists[one] = dists[two];
+    dists[two] = dist;
+  }
+
+  //the buffers a search borrows from the pool and gives back
+  private static final class Scratch {
+    private final NeighborHeap heap = new NeighborHeap(16);
+    private final BranchQueue queue = new BranchQueue();
+    private final int[] range = new int[3];
+    //positions found by a radius search and their squared distances
+    private int[] found = new int[16];
+    private double[] dists = new double[16];
+    private int count;
+    //how many points the last approximate search checked
+    private int checks;
+    //deep enough for any tree that fits in an array
+    private final int[] stack = new int[3 * 64];
+
+    void add(int position, double dist) {
+      if (count == found.length) {
+        found = Arrays.copyOf(found, count * 2);
+        dists = Arrays.copyOf(dists, count * 2);
+      }
+      found[count] = position;
+      dists[count++] = dist;
+    }
+  }
+}
@@ -7,7 +7,8 @@ import java.util.Comparator;
 
 import java.math.BigDecimal;
 
-import com.google.common.collect.Lists;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
 /**
  * Represents a k-d treee in java.
@@ -19,8 +20,16 @@ import com.google.common.collect.Lists;
 
 public class KDTree<Node extends KDInsertable<Node>> {
 
+  //how lopsided a subtree may get, as the largest share of its nodes one
+  //child may hold, before insert or remove rebuilds it
+  private static final double BALANCE = 0.7;
+
   //holds the root node of the tree
   private Node root;
+  //the number of nodes in the tree, and the most there have been since the
+  //whole tree was last rebuilt
+  private int size;
+  private int maxSize;
 
   /** Given a root node of an already built tree, constructs a KDTree.
    * @param root A node that implements KDInsertable and is already a built
@@ -28,6 +37,8 @@ public class KDTree<Node extends KDInsertable<Node>> {
    */
   public KDTree(Node root) {
     this.root = root;
+    this.size = countNodes(root);
+    this.maxSize = size;
   }
 
   /** Given a list of nodes that have to parent left child or right child,
@@ -36,7 +47,241 @@ public class KDTree<Node extends KDInsertable<Node>> {
    * child
    */
   public KDTree(List<Node> nodeList) {
-    this.root = recurGenTree(nodeList, 0, null);
+    this.root = buildTree(nodeList, 0, null);
+    this.size = nodeList.size();
+    this.maxSize = size;
+  }
+
+  /** Returns the number of nodes in the tree.
+   * @return The number of nodes in the tree.
+   */
+  public int size() {
+    return size;
+  }
+
+  /** Adds a node to the tree, setting its parent, children and split
+   * dimension. If the new node ends up too deep, the smallest subtree above
+   * it that is out of balance is rebuilt, which keeps the tree's depth
+   * logarithmic for an amortized logarithmic cost per insert.
+   * @param node The node to add, which must not already be in a tree.
+   */
+  public void insert(Node node) {
+    node.setLeft(null);
+    node.setRight(null);
+    size++;
+    maxSize = Math.max(maxSize, size);
+    if (root == null) {
+      node.setParent(null);
+      node.setSplitDimension(0);
+      root = node;
+      return;
+    }
+
+    //go down the side of each split the node is on, as the searches do
+    List<Double> location = node.getLocation();
+    int numDimensions = location.size();
+    Node parent = root;
+    int depth = 1;
+    while (true) {
+      int axis = parent.getSplitDimension();
+      boolean goLeft =
+          location.get(axis) < parent.getLocation().get(axis);
+      Node child = goLeft ? parent.getLeft() : parent.getRight();
+      if (child == null) {
+        node.setParent(parent);
+        node.setSplitDimension((axis + 1) % numDimensions);
+        if (goLeft) {
+          parent.setLeft(node);
+        } else {
+          parent.setRight(node);
+        }
+        break;
+      }
+      parent = child;
+      depth++;
+    }
+
+    if (depth > maxDepth(size)) {
+      rebuild(scapegoat(node));
+    }
+  }
+
+  /** Removes a node from the tree. Its place is taken by the node below it
+   * with the smallest value on its split dimension from its right subtree,
+   * or the largest from its left subtree if it has no right one, which is
+   * removed from below the same way in turn. Removing never makes the tree
+   * deeper, and the whole tree is rebuilt once enough nodes have gone that
+   * it may be out of balance, for an amortized logarithmic cost.
+   * @param node The node to remove.
+   * @return True if the node was in the tree and has been removed.
+   */
+  public boolean remove(Node node) {
+    //only nodes that lead up to this tree's root are in it
+    Node top = node;
+    while (top.getParent() != null) {
+      top = top.getParent();
+    }
+    if (top != root) {
+      return false;
+    }
+
+    delete(node);
+    size--;
+    if (size < BALANCE * maxSize) {
+      rebuild(root);
+      maxSize = size;
+    }
+    return true;
+  }
+
+  //unlinks a node, moving the node that can take its place up into it
+  private void delete(Node node) {
+    int axis = node.getSplitDimension();
+    Node replacement;
+    if (node.getRight() != null) {
+      replacement = extreme(node.getRight(), axis, true);
+    } else {
+      replacement = extreme(node.getLeft(), axis, false);
+    }
+    if (replacement != null) {
+      delete(replacement);
+    }
+
+    //the replacement's removal may have changed node's children
+    Node parent = node.getParent();
+    replace(parent, node, replacement);
+    if (replacement != null) {
+      replacement.setParent(parent);
+      replacement.setSplitDimension(axis);
+      replacement.setLeft(node.getLeft());
+      replacement.setRight(node.getRight());
+      if (node.getLeft() != null) {
+        node.getLeft().setParent(replacement);
+      }
+      if (node.getRight() != null) {
+        node.getRight().setParent(replacement);
+      }
+    }
+    node.setParent(null);
+    node.setLeft(null);
+    node.setRight(null);
+  }
+
+  //returns the node in a subtree with the smallest, or largest, value on
+  //axis, only going down both sides of splits on other axes
+  private Node extreme(Node subtree, int axis, boolean smallest) {
+    if (subtree == null) {
+      return null;
+    }
+    Node near = smallest ? subtree.getLeft() : subtree.getRight();
+    Node far = smallest ? subtree.getRight() : subtree.getLeft();
+    Node best = better(subtree, extreme(near, axis, smallest), axis,
+                       smallest);
+    if (subtree.getSplitDimension() != axis) {
+      best = better(best, extreme(far, axis, smallest), axis, smallest);
+    }
+    return best;
+  }
+
+  //returns whichever of two nodes has the smaller, or larger, value on axis
+  private Node better(Node one, Node two, int axis, boolean smallest) {
+    if (two == null) {
+      return one;
+    }
+    double oneValue = one.getLocation().get(axis);
+    double twoValue = two.getLocation().get(axis);
+    if (smallest ? twoValue < oneValue : twoValue > oneValue) {
+      return two;
+    }
+    return one;
+  }
+
+  //the deepest a node may be in a balanced tree of the given size
+  private static int maxDepth(int numNodes) {
+    return (int) Math.floor(Math.log(numNodes) / Math.log(1 / BALANCE)) + 1;
+  }
+
+  //walks up from a node that is too deep to the first ancestor with a child
+  //holding more than its share of the ancestor's nodes. One must exist, as
+  //a tree where every node is in balance can't be that deep.
+  private Node scapegoat(Node node) {
+    int childSize = 1;
+    Node child = node;
+    Node ancestor = node.getParent();
+    while (ancestor != null) {
+      Node sibling = ancestor.getLeft() == child ? ancestor.getRight()
+                                                 : ancestor.getLeft();
+      int ancestorSize = childSize + 1 + countNodes(sibling);
+      if (childSize > BALANCE * ancestorSize) {
+        return ancestor;
+      }
+      childSize = ancestorSize;
+      child = ancestor;
+      ancestor = ancestor.getParent();
+    }
+    return root;
+  }
+
+  //replaces a subtree with a balanced one made of the same nodes
+  private void rebuild(Node subtree) {
+    if (subtree == null) {
+      return;
+    }
+    //building gives subtree a new parent, so note its old one first
+    Node parent = subtree.getParent();
+    List<Node> nodes = new ArrayList<>();
+    collect(subtree, nodes);
+    replace(parent, subtree,
+            buildTree(nodes, subtree.getSplitDimension(), parent));
+  }
+
+  //puts replacement where subtree was under parent
+  private void replace(Node parent, Node subtree, Node replacement) {
+    if (parent == null) {
+      root = replacement;
+    } else if (parent.getLeft() == subtree) {
+      parent.setLeft(replacement);
+    } else {
+      parent.setRight(replacement);
+    }
+  }
+
+  //adds every node of a subtree to nodes
+  private void collect(Node subtree, List<Node> nodes) {
+    List<Node> stack = new ArrayList<>();
+    if (subtree != null) {
+      stack.add(subtree);
+    }
+    while (!stack.isEmpty()) {
+      Node node = stack.remove(stack.size() - 1);
+      nodes.add(node);
+      if (node.getLeft() != null) {
+        stack.add(node.getLeft());
+      }
+      if (node.getRight() != null) {
+        stack.add(node.getRight());
+      }
+    }
+  }
+
+  //returns the number of nodes in a subtree
+  private int countNodes(Node subtree) {
+    int count = 0;
+    List<Node> stack = new ArrayList<>();
+    if (subtree != null) {
+      stack.add(subtree);
+    }
+    while (!stack.isEmpty()) {
+      Node node = stack.remove(stack.size() - 1);
+      count++;
+      if (node.getLeft() != null) {
+        stack.add(node.getLeft());
+      }
+      if (node.getRight() != null) {
+        stack.add(node.getRight());
+      }
+    }
+    return count;
   }
 
   //WARNING: do not call for massive trees, will generate a massive string
@@ -56,65 +301,117 @@ public class KDTree<Node extends KDInsertable<Node>> {
     }
   }
 
-  //sorts list of nodes looking at a certain dimension in ascending order
-  private void sortByDimension(int dimension, List<Node> toSort) {
-    //creates a generic comparator to sort with
-    Collections.sort(toSort, new Comparator<Node>() {
-      @Override
-      public int compare(Node one, Node two) {
-          // compare using whichever properties of ListType you need
-          Double oneLocation = one.getLocation().get(dimension);
-          Double twoLocation = two.getLocation().get(dimension);
-          if (Double.compare(oneLocation, twoLocation) < 0) {
-            return -1;
-          } else if (Double.compare(oneLocation, twoLocation) > 0) {
-            return 1;
-          } else {
-            return 0;
-          }
-      }
-    });
-  }
+  //a subtree with fewer nodes than this is built on the calling thread
+  private static final int PARALLEL_THRESHOLD = 8192;
 
-  //generates the rest of the KD tree from the parent node w/ the nodesToAdd
-  private Node recurGenTree(List<Node> nodesToAdd,
-                            int depth,
-                            Node parent) {
-    //makes sure there is a star to add
-    if (nodesToAdd.size() <= 0) {
+  //generates a balanced tree of the given nodes under parent, its root
+  //splitting on axis, and returns the root
+  @SuppressWarnings("unchecked")
+  private Node buildTree(List<Node> nodeList, int axis, Node parent) {
+    if (nodeList.isEmpty()) {
       return null;
     }
     // number of dimension the tree is built in
-    int numDimensions = nodesToAdd.get(0).getLocation().size();
-
-    // Select axis based on depth so that axis cycles through all valid values
-    int axis = depth % numDimensions;
+    int numDimensions = nodeList.get(0).getLocation().size();
+
+    //read every location once so the build never goes through the lists
+    Object[] nodes = nodeList.toArray();
+    double[] coords = new double[nodes.length * numDimensions];
+    for (int i = 0; i < nodes.length; i++) {
+      List<Double> location = ((Node) nodes[i]).getLocation();
+      for (int d = 0; d < numDimensions; d++) {
+        coords[i * numDimensions + d] = location.get(d);
+      }
+    }
+    int[] order = new int[nodes.length];
+    for (int i = 0; i < order.length; i++) {
+      order[i] = i;
+    }
 
-    //sorts by selected dimension
-    sortByDimension(axis, nodesToAdd);
+    Builder builder = new Builder(nodes, coords, numDimensions, order);
+    if (nodes.length < PARALLEL_THRESHOLD) {
+      return builder.build(0, nodes.length, axis, parent);
+    }
+    return ForkJoinPool.commonPool().invoke(
+        builder.new Task(0, nodes.length, axis, parent));
+  }
 
-    //Gets node and adds children around median to balance tree
-    int pointer =  (nodesToAdd.size()) / 2;
-    Node node = nodesToAdd.remove(pointer);
-    node.setSplitDimension(axis);
-    node.setParent(parent);
+  //builds subtrees out of ranges of an array of nodes, choosing medians with
+  //quickselect on an index array instead of sorting and copying lists
+  private final class Builder {
+    private final Object[] nodes;
+    private final double[] coords;
+    private final int numDimensions;
+    private final int[] order;
+
+    Builder(Object[] nodes, double[] coords, int numDimensions, int[] order) {
+      this.nodes = nodes;
+      this.coords = coords;
+      this.numDimensions = numDimensions;
+      this.order = order;
+    }
 
-    //makes sure its partitionable
-    if (nodesToAdd.size() <= 0) {
+    //generates the subtree of the nodes in order[lo, hi) under parent,
+    //splitting its root on axis
+    @SuppressWarnings("unchecked")
+    Node build(int lo, int hi, int axis, Node parent) {
+      if (hi <= lo) {
+        return null;
+      }
+      // children split on the next axis so that axis cycles through all
+      // valid values
+      int next = (axis + 1) % numDimensions;
+
+      //Gets node and adds children around median to balance tree
+      int pointer = lo + (hi - lo) / 2;
+      Quickselect.select(coords, numDimensions, order, lo, hi, pointer,
+                         axis);
+      Node node = (Node) nodes[order[pointer]];
+      node.setSplitDimension(axis);
+      node.setParent(parent);
+      node.setLeft(build(lo, pointer, next, node));
+      node.setRight(build(pointer + 1, hi, next, node));
       return node;
     }
 
-    //add parents and left/right children based on surround median values
-
-    final List<List<Node>> partition =  Lists.partition(nodesToAdd, pointer);
-    node.setLeft(recurGenTree(new ArrayList<Node>(partition.get(0)),
-                                                  depth + 1, node));
+    //builds big subtrees by building both halves at once. The halves are
+    //separate ranges of order and separate nodes, so they never clash.
+    private final class Task extends RecursiveTask<Node> {
+      private static final long serialVersionUID = 1L;
+      private final int lo;
+      private final int hi;
+      private final int axis;
+      private final transient Node parent;
+
+      Task(int lo, int hi, int axis, Node parent) {
+        this.lo = lo;
+        this.hi = hi;
+        this.axis = axis;
+        this.parent = parent;
+      }
 
-    if (partition.size() == 2) {
-      node.setRight(recurGenTree(new ArrayList<Node>(partition.get(1)),
-                                                     depth + 1, node));
+      @Override
+      @SuppressWarnings("unchecked")
+      protected Node compute() {
+        if (hi - lo < PARALLEL_THRESHOLD) {
+          return build(lo, hi, axis, parent);
+        }
+        int next = (axis + 1) % numDimensions;
+        int pointer = lo + (hi - lo) / 2;
+        Quickselect.select(coords, numDimensions, order, lo, hi,
+                           pointer, axis);
+        Node node = (Node) nodes[order[pointer]];
+        node.setSplitDimension(axis);
+        node.setParent(parent);
+
+        Task left = new Task(lo, pointer, next, node);
+        Task right = new Task(pointer + 1, hi, next, node);
+        left.fork();
+        node.setRight(right.compute());
+        node.setLeft(left.join());
+        return node;
+      }
     }
-    return node;
   }
 
   //returns the distance between two double cordinate lists as a BigDecimal
@@ -156,7 +453,8 @@ public class KDTree<Node extends KDInsertable<Node>> {
    * returns a list of nodes containing the neigbhors closest to the target
    * location. The list will be of length numNeighbors unless there are less
    * nodes than numNeighbors. If so, the list will contain all nodes in the
-   * tree.
+   * tree. The list is sorted in descending order of distance, so the
+   * furthest of the neighbors comes first.
    * @param numNeighbors Integer represeinging the number of nodes to search
    * for.
    * @param targetLocation Integer representing the location to search around
@@ -165,104 +463,71 @@ public class KDTree<Node extends KDInsertable<Node>> {
    */
   public List<Node> nearestNeighbors(int numNeighbors,
                                      List<Double> targetLocation) {
-    List<Node> neighborList = new ArrayList<Node>();
-    nearestNeighborsHelper(numNeighbors,
-                           Collections.unmodifiableList(targetLocation),
-                           neighborList,
-                           root,
-                           BigDecimal.ZERO);
-    return neighborList;
-  }
-
-  //recursively searches through the tree for nearest neighbor
-  private void nearestNeighborsHelper(
-                                 int num,
-                                 List<Double> targetLocation,
-                                 List<Node> nearestNeighbors,
-                                 Node currentNode,
-                                 BigDecimal worstDistance) {
-    List<Double> currentLocation = currentNode.getLocation();
-    BigDecimal curDistance = dist(targetLocation, currentLocation);
-
-    /* Neighbor list is sorted in ascending order so the furthest node
-    from the targetLocation will be the first node in the list */
-    if (nearestNeighbors.size() > 0) {
-      worstDistance = dist(nearestNeighbors.get(0).getLocation(),
-                           targetLocation);
+    double[] target = new double[targetLocation.size()];
+    for (int i = 0; i < target.length; i++) {
+      target[i] = targetLocation.get(i);
+    }
+    NeighborHeap heap =
+        new NeighborHeap(Math.max(0, Math.min(numNeighbors, size)));
+    List<Node> offered = new ArrayList<>();
+    if (root != null && numNeighbors > 0) {
+      nearestNeighborsHelper(target, heap, offered, root);
     }
 
-    /* If we aren't at the max number of neighbors, add the currentNode by
-    default */
-    if (nearestNeighbors.size() < num) {
-
-      nearestNeighbors.add(currentNode);
-      sortByDist(targetLocation, nearestNeighbors);
-      worstDistance = dist(nearestNeighbors.get(0).getLocation(),
-                           targetLocation);
-
-    } else if (curDistance.compareTo(worstDistance) < 0) {
-      /* otherwise check if the current node is better than the worst node in
-      the list */
-      nearestNeighbors.remove(0);
-      nearestNeighbors.add(currentNode);
+    int[] found = new int[heap.size()];
+    heap.drain(found, null, 0);
+    List<Node> nodeList = new ArrayList<>(found.length);
+    for (int id : found) {
+      nodeList.add(offered.get(id));
+    }
+    return nodeList;
+  }
 
-      sortByDist(targetLocation, nearestNeighbors);
-      worstDistance = dist(nearestNeighbors.get(0).getLocation(),
-                           targetLocation);
+  //recursively searches through the tree for nearest neighbor, going down
+  //the side of the split the target is on first so that the neighbors are
+  //as close as possible by the time the other side is checked. Nodes that
+  //get into the heap are kept in offered, their index being their id there.
+  private void nearestNeighborsHelper(double[] targetLocation,
+                                      NeighborHeap heap,
+                                      List<Node> offered,
+                                      Node currentNode) {
+    List<Double> currentLocation = currentNode.getLocation();
+    double dist = distSquared(targetLocation, currentLocation);
+    if (dist < heap.worst()) {
+      heap.offer(offered.size(), dist);
+      offered.add(currentNode);
     }
 
-    //Recur through searching for neigbhors closer to target location.
     int axis = currentNode.getSplitDimension();
-    BigDecimal targetAxisPos = new BigDecimal(targetLocation.get(axis));
-    BigDecimal curAxisPos =  new BigDecimal(currentLocation.get(axis));
-    BigDecimal axisDist = curAxisPos.subtract(targetAxisPos).pow(2);
-
-    Node leftNode = currentNode.getLeft();
-    Node rightNode = currentNode.getRight();
-    //if axis is inside hypersphere go down each path
-    if (axisDist.compareTo(worstDistance) <= 0) {
-      if (leftNode != null) {
-        nearestNeighborsHelper(
-                    num,
-                    targetLocation,
-                    nearestNeighbors,
-                    leftNode,
-                    worstDistance);
-      }
-      if (rightNode != null) {
-        nearestNeighborsHelper(
-                    num,
-                    targetLocation,
-                    nearestNeighbors,
-                    rightNode,
-                    worstDistance);
-      }
+    double axisDist = targetLocation[axis] - currentLocation.get(axis);
+    Node nearNode;
+    Node farNode;
+    if (axisDist < 0) {
+      //if target axis is to the left of current axis, left is nearer
+      nearNode = currentNode.getLeft();
+      farNode = currentNode.getRight();
     } else {
-      //otherwise only go in the direction of the targetLocation
-      if (targetAxisPos.compareTo(curAxisPos) < 0) {
-        //if target axis is to the left of current axis, go down left branch
+      nearNode = currentNode.getRight();
+      farNode = currentNode.getLeft();
+    }
 
-        if (leftNode != null) {
-          nearestNeighborsHelper(
-                      num,
-                      targetLocation,
-                      nearestNeighbors,
-                      leftNode,
-                      worstDistance);
-        }
-      } else {
-        ///otherwise go down right
-        if (rightNode != null) {
-          nearestNeighborsHelper(
-                      num,
-                      targetLocation,
-                      nearestNeighbors,
-                      rightNode,
-                      worstDistance);
-        }
-      }
+    if (nearNode != null) {
+      nearestNeighborsHelper(targetLocation, heap, offered, nearNode);
+    }
+    //only go down the far side if the split is inside the hypersphere
+    if (farNode != null && axisDist * axisDist < heap.worst()) {
+      nearestNeighborsHelper(targetLocation, heap, offered, farNode);
+    }
+  }
 
+  //returns the squared distance between a target and a node's location
+  private static double distSquared(double[] target, List<Double> location) {
+    double total = 0;
+    for (int i = 0; i < target.length; i++) {
+      double diff = target[i] - location.get(i);
+      total += diff * diff;
     }
+    return total;
   }
 
   /** Given a double representing a distance from a point in k-dimensional space
@@ -275,6 +540,9 @@ public class KDTree<Node extends KDInsertable<Node>> {
    */
   public List<Node> radiusSearch(Double radius, List<Double> targetLocation) {
     List<Node> nodeList = new ArrayList<Node>();
+    if (root == null) {
+      return nodeList;
+    }
     String stringRadius = Double.toString(radius);
     radiusSearchHelper(new BigDecimal(stringRadius).pow(2),
                        Collections.unmodifiableList(targetLocation),
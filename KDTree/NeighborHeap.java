@@ -0,0 +1,119 @@
+package portfolio;
+
+/**
+ * Holds the k closest points seen so far in a nearest neighbor search as a
+ * max-heap of squared distances, so the furthest of them is always on top
+ * to compare new points against. Everything is kept in primitive arrays
+ * that are reused from one search to the next.
+ *
+ * @author Zachary Hoffman
+ */
+final class NeighborHeap {
+  private int[] ids;
+  private double[] dists;
+  private int capacity;
+  private int size;
+
+  /** Constructs an empty heap that holds up to capacity points.
+   * @param capacity The number of neighbors being searched for.
+   */
+  NeighborHeap(int capacity) {
+    this.ids = new int[Math.max(capacity, 1)];
+    this.dists = new double[Math.max(capacity, 1)];
+    this.capacity = capacity;
+    this.size = 0;
+  }
+
+  /** Empties the heap and sets how many points it holds, growing it if
+   * needed.
+   * @param newCapacity The number of neighbors being searched for.
+   */
+  void reset(int newCapacity) {
+    if (newCapacity > ids.length) {
+      ids = new int[newCapacity];
+      dists = new double[newCapacity];
+    }
+    capacity = newCapacity;
+    size = 0;
+  }
+
+  int size() {
+    return size;
+  }
+
+  /** Returns the squared distance a point must beat to get into the heap.
+   * @return The furthest squared distance held once the heap is full,
+   * otherwise positive infinity.
+   */
+  double worst() {
+    return size < capacity ? Double.POSITIVE_INFINITY : dists[0];
+  }
+
+  /** Adds a point if the heap isn't full or it is closer than the furthest
+   * point held, which it then replaces.
+   * @param id The point.
+   * @param dist The point's squared distance to the target.
+   */
+  void offer(int id, double dist) {
+    if (size < capacity) {
+      int index = size++;
+      //sift up
+      while (index > 0) {
+        int parent = (index - 1) >>> 1;
+        if (dists[parent] >= dist) {
+          break;
+        }
+        ids[index] = ids[parent];
+        dists[index] = dists[parent];
+        index = parent;
+      }
+      ids[index] = id;
+      dists[index] = dist;
+    } else if (capacity > 0 && dist < dists[0]) {
+      siftDown(id, dist);
+    }
+  }
+
+  /** Empties the heap into the given arrays, furthest point first.
+   * @param outIds Where to put the points.
+   * @param outDists Where to put their squared distances, or null.
+   * @param offset Where to start writing in both arrays.
+   * @return The number of points written.
+   */
+  int drain(int[] outIds, double[] outDists, int offset) {
+    int count = size;
+    for (int i = 0; i < count; i++) {
+      outIds[offset + i] = ids[0];
+      if (outDists != null) {
+        outDists[offset + i] = dists[0];
+      }
+      size--;
+      if (size > 0) {
+        siftDown(ids[size], dists[size]);
+      }
+    }
+    return count;
+  }
+
+  //puts the given point in place of the top and sifts it down
+  private void siftDown(int id, double dist) {
+    int index = 0;
+    while (true) {
+      int child = 2 * index + 1;
+      if (child >= size) {
+        break;
+      }
+      if (child + 1 < size && dists[child + 1] > dists[child]) {
+        child++;
+      }
+      if (dists[child] <= dist) {
+        break;
+      }
+      ids[index] = ids[child];
+      dists[index] = dists[child];
+      index = child;
+    }
+    ids[index] = id;
+    dists[index] = dist;
+  }
+}
@@ -0,0 +1,67 @@
+package portfolio;
+
+/**
+ * Holds the answers to a batch of FlatKDTree queries in compressed sparse
+ * row form: the answers to query q are getFirst(q) to getFirst(q + 1) - 1,
+ * each an entry in an id array and a distance array. Within a query the
+ * answers are furthest first, as in KDTree.nearestNeighbors.
+ *
+ * @author Zachary Hoffman
+ */
+public final class NeighborTable {
+  private final int[] first;
+  private final int[] ids;
+  private final double[] distances;
+
+  /** Constructs a NeighborTable from its arrays, which it keeps.
+   * @param first Where each query's answers start, with one extra entry
+   * holding the total number of answers.
+   * @param ids The id of each answer.
+   * @param distances The distance of each answer from its query.
+   */
+  NeighborTable(int[] first, int[] ids, double[] distances) {
+    this.first = first;
+    this.ids = ids;
+    this.distances = distances;
+  }
+
+  /** Returns the number of queries.
+   * @return The number of queries.
+   */
+  public int getNumQueries() {
+    return first.length - 1;
+  }
+
+  /** Returns the number of answers to all the queries together.
+   * @return The number of answers.
+   */
+  public int size() {
+    return ids.length;
+  }
+
+  /** Returns the first answer to a query. The answers to query q are
+   * getFirst(q) to getFirst(q + 1) - 1.
+   * @param query The query, from 0 to getNumQueries().
+   * @return The index of the query's first answer.
+   */
+  public int getFirst(int query) {
+    return first[query];
+  }
+
+  /** Returns the id of an answer, which is where its node was in the list
+   * the tree was built from.
+   * @param index The index of the answer.
+   * @return The answer's id.
+   */
+  public int getId(int index) {
+    return ids[index];
+  }
+
+  /** Returns how far an answer is from its query.
+   * @param index The index of the answer.
+   * @return The distance between the answer and its query.
+   */
+  public double getDistance(int index) {
+    return distances[index];
+  }
+}
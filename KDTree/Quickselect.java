@@ -0,0 +1,58 @@
+package portfolio;
+
+/**
+ * Chooses medians for building k-d trees. Points are held as coordinates in
+ * one double array, point after point, and are reordered through an array
+ * of their indices so the coordinates themselves never move.
+ *
+ * @author Zachary Hoffman
+ */
+final class Quickselect {
+  private Quickselect() {
+  }
+
+  /** Reorders order[lo, hi) so that order[k] holds the point that would be
+   * there if sorted on axis, with none larger before and none smaller after.
+   * @param coords The coordinates of every point.
+   * @param dimensions The number of coordinates each point has.
+   * @param order The indices of the points, part of which is reordered.
+   * @param lo The first position to reorder.
+   * @param hi One past the last position to reorder.
+   * @param k The position to put the right point at.
+   * @param axis The coordinate to compare points on.
+   */
+  static void select(double[] coords, int dimensions, int[] order, int lo,
+                     int hi, int k, int axis) {
+    hi--;
+    while (hi > lo) {
+      double pivot = coords[order[(lo + hi) >>> 1] * dimensions + axis];
+      //three way partition so runs of equal values don't go quadratic
+      int lt = lo;
+      int gt = hi;
+      int i = lo;
+      while (i <= gt) {
+        double value = coords[order[i] * dimensions + axis];
+        if (value < pivot) {
+          swap(order, lt++, i++);
+        } else if (value > pivot) {
+          swap(order, i, gt--);
+        } else {
+          i++;
+        }
+      }
+      if (k < lt) {
+        hi = lt - 1;
+      } else if (k > gt) {
+        lo = gt + 1;
+      } else {
+        return;
+      }
+    }
+  }
+
+  private static void swap(int[] array, int one, int two) {
+    int swap = array[one];
+    array[one] = array[two];
+    array[two] = swap;
+  }
+}
@@ -0,0 +1,547 @@
+package portfolio;
+
+import java.util.List;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.CharBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Represents a read only snapshot of a trie, made with Trie.freeze().
+ * <p> Identical subtrees are shared, making it a minimal acyclic automaton,
+ * and chains of nodes with a single child and no word are merged into one
+ * edge. Everything is held in primitive arrays: a word's count is found by
+ * its alphabetical position among all words, which is summed up on the way
+ * down the edges.
+ * <p> A CompactTrie can be written to a file once with write() and opened
+ * with open(), which maps the file into memory instead of reading it. Lookups
+ * then work on the mapped pages directly, so opening is immediate and every
+ * process that opens the same file shares one copy in the page cache. All
+ * lookups are safe to call from many threads at once.
+ *
+ * @author Zachary Hoffman
+ */
+public final class CompactTrie {
+  private static final int ROOT = 0;
+  //marks the start of a file written by write(), followed by the version
+  private static final int MAGIC = 0x54524945;
+  private static final int VERSION = 1;
+  private static final int HEADER_BYTES = 6 * Integer.BYTES;
+
+  //every section is only ever read with absolute gets, which makes sharing
+  //the buffers between threads safe
+
+  //edges of node n are firstEdge[n] to firstEdge[n + 1] - 1, sorted by their
+  //first character
+  private IntBuffer firstEdge;
+  //1 for nodes that end a word, otherwise 0
+  private ByteBuffer terminal;
+
+  //the first character of each edge, the node it leads to, where the rest
+  //of its characters are in labels, and how many words come before the
+  //edge's words among the words under the edge's node
+  private CharBuffer edgeChar;
+  private IntBuffer edgeTarget;
+  private IntBuffer edgeTail;
+  private IntBuffer edgeTailLength;
+  private IntBuffer edgeRank;
+  private CharBuffer labels;
+
+  //the count of every word, by alphabetical position
+  private IntBuffer counts;
+
+  /** Constructs a CompactTrie holding the same words as a trie.
+   * @param root The root of the trie to copy.
+   */
+  CompactTrie(TrieNode root) {
+    //share identical subtrees
+    Minimizer minimizer = new Minimizer();
+    int minRoot = minimizer.canonical(root);
+
+    //then merge chains, keeping only the nodes an edge can end on
+    int numStates = minimizer.stateTerminal.size();
+    int[] newId = new int[numStates];
+    Arrays.fill(newId, -1);
+    int[] chainEnd = new int[numStates];
+    int[] chainTail = new int[numStates];
+    int[] chainLength = new int[numStates];
+    Arrays.fill(chainEnd, -1);
+    StringBuilder labelPool = new StringBuilder();
+
+    List<Integer> order = new ArrayList<>();
+    newId[minRoot] = 0;
+    order.add(minRoot);
+    int numEdges = 0;
+    for (int i = 0; i < order.size(); i++) {
+      int state = order.get(i);
+      for (int target : minimizer.stateTargets.get(state)) {
+        int end = compress(minimizer, target, minRoot, chainEnd, chainTail,
+                           chainLength, labelPool);
+        if (newId[end] < 0) {
+          newId[end] = order.size();
+          order.add(end);
+        }
+        numEdges++;
+      }
+    }
+
+    //lay the nodes and edges out in flat arrays
+    int numNodes = order.size();
+    int[] nodeFirstEdge = new int[numNodes + 1];
+    byte[] nodeTerminal = new byte[numNodes];
+    char[] chars = new char[numEdges];
+    int[] targets = new int[numEdges];
+    int[] tails = new int[numEdges];
+    int[] tailLengths = new int[numEdges];
+    int[] ranks = new int[numEdges];
+
+    int edge = 0;
+    for (int node = 0; node < numNodes; node++) {
+      int state = order.get(node);
+      nodeFirstEdge[node] = edge;
+      boolean isWord = minimizer.stateTerminal.get(state);
+      nodeTerminal[node] = (byte) (isWord ? 1 : 0);
+
+      int rank = isWord ? 1 : 0;
+      char[] stateChars = minimizer.stateChars.get(state);
+      int[] stateTargets = minimizer.stateTargets.get(state);
+      for (int i = 0; i < stateChars.length; i++) {
+        int target = stateTargets[i];
+        chars[edge] = stateChars[i];
+        targets[edge] = newId[chainEnd[target]];
+        tails[edge] = chainTail[target];
+        tailLengths[edge] = chainLength[target];
+        ranks[edge] = rank;
+        rank += minimizer.stateWords.get(chainEnd[target]);
+        edge++;
+      }
+    }
+    nodeFirstEdge[numNodes] = edge;
+
+    //counts go in alphabetical order, which is the trie's depth first order
+    int[] wordCounts = new int[minimizer.stateWords.get(minRoot)];
+    fillCounts(root, wordCounts, 0);
+
+    firstEdge = IntBuffer.wrap(nodeFirstEdge);
+    terminal = ByteBuffer.wrap(nodeTerminal);
+    edgeChar = CharBuffer.wrap(chars);
+    edgeTarget = IntBuffer.wrap(targets);
+    edgeTail = IntBuffer.wrap(tails);
+    edgeTailLength = IntBuffer.wrap(tailLengths);
+    edgeRank = IntBuffer.wrap(ranks);
+    labels = CharBuffer.wrap(labelPool.toString().toCharArray());
+    counts = IntBuffer.wrap(wordCounts);
+  }
+
+  //reads a CompactTrie from the sections of a buffer laid out by write()
+  private CompactTrie(ByteBuffer data) throws IOException {
+    data.order(ByteOrder.LITTLE_ENDIAN);
+    if (data.capacity() < HEADER_BYTES || data.getInt(0) != MAGIC
+        || data.getInt(Integer.BYTES) != VERSION) {
+      throw new IOException("Not a CompactTrie file");
+    }
+    int numNodes = data.getInt(2 * Integer.BYTES);
+    int numEdges = data.getInt(3 * Integer.BYTES);
+    int numLabels = data.getInt(4 * Integer.BYTES);
+    int numWords = data.getInt(5 * Integer.BYTES);
+
+    //sizes come from the file, so check them before trusting them
+    int terminalBytes = sectionLength(data, numNodes, 1);
+    //numNodes fits in the file, so one more can't overflow
+    int nodeBytes = sectionLength(data, numNodes + 1, Integer.BYTES);
+    int charBytes = sectionLength(data, numEdges, Character.BYTES);
+    int edgeBytes = sectionLength(data, numEdges, Integer.BYTES);
+    int labelBytes = sectionLength(data, numLabels, Character.BYTES);
+    int wordBytes = sectionLength(data, numWords, Integer.BYTES);
+
+    long offset = HEADER_BYTES;
+    firstEdge = section(data, offset, nodeBytes).asIntBuffer();
+    offset += align(nodeBytes);
+    terminal = section(data, offset, terminalBytes);
+    offset += align(terminalBytes);
+    edgeChar = section(data, offset, charBytes).asCharBuffer();
+    offset += align(charBytes);
+    edgeTarget = section(data, offset, edgeBytes).asIntBuffer();
+    offset += edgeBytes;
+    edgeTail = section(data, offset, edgeBytes).asIntBuffer();
+    offset += edgeBytes;
+    edgeTailLength = section(data, offset, edgeBytes).asIntBuffer();
+    offset += edgeBytes;
+    edgeRank = section(data, offset, edgeBytes).asIntBuffer();
+    offset += edgeBytes;
+    labels = section(data, offset, labelBytes).asCharBuffer();
+    offset += align(labelBytes);
+    counts = section(data, offset, wordBytes).asIntBuffer();
+  }
+
+  //returns the bytes count entries of the given size take, rejecting
+  //negative counts and sizes that overflow or are larger than the file
+  private static int sectionLength(ByteBuffer data, int count, int bytes)
+    throws IOException {
+    if (count < 0) {
+      throw new IOException("CompactTrie file has a negative size");
+    }
+    int length;
+    try {
+      length = Math.multiplyExact(count, bytes);
+    } catch (ArithmeticException e) {
+      throw new IOException("CompactTrie file has a size that overflows", e);
+    }
+    if (length > data.capacity()) {
+      throw new IOException("CompactTrie file is smaller than its sizes");
+    }
+    return length;
+  }
+
+  //returns length bytes of data starting at offset as their own buffer
+  private static ByteBuffer section(ByteBuffer data, long offset, int length)
+    throws IOException {
+    if (offset < 0 || length < 0 || offset + length > data.capacity()) {
+      throw new IOException("CompactTrie file is truncated");
+    }
+    ByteBuffer copy = data.duplicate();
+    copy.position((int) offset);
+    copy.limit((int) offset + length);
+    return copy.slice().order(ByteOrder.LITTLE_ENDIAN);
+  }
+
+  //rounds a section length up so the next section starts on a 4 byte
+  //boundary
+  private static long align(long length) {
+    return (length + 3) & ~3L;
+  }
+
+  /**
+   * Opens a CompactTrie that was written with write(), mapping the file into
+   * memory rather than reading it into the heap.
+   * @param path The file to open.
+   * @return A CompactTrie backed by the mapped file.
+   * @throws IOException If the file cannot be read or is not a CompactTrie,
+   * including when the sizes in its header are negative, overflow or are
+   * larger than the file.
+   */
+  public static CompactTrie open(Path path) throws IOException {
+    try (FileChannel channel = FileChannel.open(path,
+                                                StandardOpenOption.READ)) {
+      if (channel.size() > Integer.MAX_VALUE) {
+        throw new IOException("CompactTrie file is too large to map");
+      }
+      MappedByteBuffer data =
+          channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      return new CompactTrie(data);
+    }
+  }
+
+  /**
+   * Writes the CompactTrie to a file in the layout open() maps.
+   * @param path The file to write, replacing it if it exists.
+   * @throws IOException If the file cannot be written.
+   */
+  public void write(Path path) throws IOException {
+    int numNodes = terminal.capacity();
+    int numEdges = edgeChar.capacity();
+    int numLabels = labels.capacity();
+    int numWords = counts.capacity();
+    long size = (long) HEADER_BYTES
+        + align(((long) numNodes + 1) * Integer.BYTES)
+        + align(numNodes)
+        + align((long) numEdges * Character.BYTES)
+        + 4L * numEdges * Integer.BYTES
+        + align((long) numLabels * Character.BYTES)
+        + (long) numWords * Integer.BYTES;
+    if (size > Integer.MAX_VALUE) {
+      throw new IOException("CompactTrie is too large to write");
+    }
+
+    try (FileChannel channel = FileChannel.open(path,
+                                                StandardOpenOption.CREATE,
+                                                StandardOpenOption.READ,
+                                                StandardOpenOption.WRITE,
+                                                StandardOpenOption.
+                                                    TRUNCATE_EXISTING)) {
+      MappedByteBuffer data =
+          channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+      data.order(ByteOrder.LITTLE_ENDIAN);
+      data.putInt(MAGIC).putInt(VERSION).putInt(numNodes).putInt(numEdges)
+          .putInt(numLabels).putInt(numWords);
+      for (int i = 0; i <= numNodes; i++) {
+        data.putInt(firstEdge.get(i));
+      }
+      pad(data);
+      for (int i = 0; i < numNodes; i++) {
+        data.put(terminal.get(i));
+      }
+      pad(data);
+      for (int i = 0; i < numEdges; i++) {
+        data.putChar(edgeChar.get(i));
+      }
+      pad(data);
+      for (IntBuffer section : new IntBuffer[] {edgeTarget, edgeTail,
+                                                edgeTailLength, edgeRank}) {
+        for (int i = 0; i < numEdges; i++) {
+          data.putInt(section.get(i));
+        }
+      }
+      for (int i = 0; i < numLabels; i++) {
+        data.putChar(labels.get(i));
+      }
+      pad(data);
+      for (int i = 0; i < numWords; i++) {
+        data.putInt(counts.get(i));
+      }
+      data.force();
+    }
+  }
+
+  //writes zeros up to the next 4 byte boundary
+  private static void pad(ByteBuffer data) {
+    while (data.position() % 4 != 0) {
+      data.put((byte) 0);
+    }
+  }
+
+  //follows state down through nodes that have one child and no word,
+  //recording where the chain ends and the characters merged along it.
+  private static int compress(Minimizer minimizer,
+                              int state,
+                              int root,
+                              int[] chainEnd,
+                              int[] chainTail,
+                              int[] chainLength,
+                              StringBuilder labelPool) {
+    if (chainEnd[state] >= 0) {
+      return chainEnd[state];
+    }
+
+    int tail = labelPool.length();
+    int end = state;
+    while (end != root && !minimizer.stateTerminal.get(end)
+           && minimizer.stateChars.get(end).length == 1) {
+      labelPool.append(minimizer.stateChars.get(end)[0]);
+      end = minimizer.stateTargets.get(end)[0];
+    }
+    chainEnd[state] = end;
+    chainTail[state] = tail;
+    chainLength[state] = labelPool.length() - tail;
+    return end;
+  }
+
+  //writes the counts of the words under node starting at position index and
+  //returns the position after them
+  private static int fillCounts(TrieNode node, int[] counts, int index) {
+    if (node.getCount() > 0) {
+      counts[index] = node.getCount();
+      index++;
+    }
+    for (int i = 0; i < node.getNumChildren(); i++) {
+      index = fillCounts(node.getChildAt(i), counts, index);
+    }
+    return index;
+  }
+
+  /**
+   * Returns the number of distinct words in the trie.
+   * @return The number of distinct words in the trie.
+   */
+  public int size() {
+    return counts.capacity();
+  }
+
+  /**
+   * Checks whether a word is in the trie.
+   * @param word The word to look for.
+   * @return True if the word was added to the trie.
+   */
+  public boolean contains(String word) {
+    return getCount(word) > 0;
+  }
+
+  /**
+   * Returns how many times a word was added to the trie.
+   * @param word The word to look for.
+   * @return The word's count, or 0 if it is not in the trie.
+   */
+  public int getCount(String word) {
+    int node = ROOT;
+    int rank = 0;
+    int pos = 0;
+    while (pos < word.length()) {
+      int edge = findEdge(node, word.charAt(pos));
+      if (edge < 0) {
+        return 0;
+      }
+      pos++;
+      int tail = edgeTail.get(edge);
+      int tailLength = edgeTailLength.get(edge);
+      if (word.length() - pos < tailLength) {
+        return 0;
+      }
+      for (int i = 0; i < tailLength; i++, pos++) {
+        if (word.charAt(pos) != labels.get(tail + i)) {
+          return 0;
+        }
+      }
+      rank += edgeRank.get(edge);
+      node = edgeTarget.get(edge);
+    }
+    if (terminal.get(node) != 0) {
+      return counts.get(rank);
+    } else {
+      return 0;
+    }
+  }
+
+  /**
+   * Finds all words that begin with the given word.
+   * @param prefix Word to search with.
+   * @return A list of words that begin with prefix, in alphabetical order.
+   */
+  public List<String> potentialWords(String prefix) {
+    List<String> words = new ArrayList<>();
+    StringBuilder buffer = new StringBuilder(prefix);
+    int node = ROOT;
+    int pos = 0;
+    while (pos < prefix.length()) {
+      int edge = findEdge(node, prefix.charAt(pos));
+      if (edge < 0) {
+        return words;
+      }
+      pos++;
+
+      //the prefix may end part way along the edge
+      int tail = edgeTail.get(edge);
+      int tailLength = edgeTailLength.get(edge);
+      for (int i = 0; i < tailLength; i++, pos++) {
+        if (pos >= prefix.length()) {
+          buffer.append(labels, tail + i, tail + tailLength);
+          break;
+        } else if (prefix.charAt(pos) != labels.get(tail + i)) {
+          return words;
+        }
+      }
+      node = edgeTarget.get(edge);
+    }
+    toList(node, words, buffer);
+    return words;
+  }
+
+  //adds all words under node to the list of words, prefix holding the
+  //characters on the way to node
+  private void toList(int node, List<String> words, StringBuilder prefix) {
+    if (terminal.get(node) != 0) {
+      words.add(prefix.toString());
+    }
+    int lastEdge = firstEdge.get(node + 1);
+    for (int edge = firstEdge.get(node); edge < lastEdge; edge++) {
+      int length = prefix.length();
+      prefix.append(edgeChar.get(edge));
+      int tail = edgeTail.get(edge);
+      prefix.append(labels, tail, tail + edgeTailLength.get(edge));
+      toList(edgeTarget.get(edge), words, prefix);
+      prefix.setLength(length);
+    }
+  }
+
+  //binary searches node's edges for the one starting with letter, returning
+  //-1 if there is none
+  private int findEdge(int node, char letter) {
+    int low = firstEdge.get(node);
+    int high = firstEdge.get(node + 1) - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      char midChar = edgeChar.get(mid);
+      if (midChar < letter) {
+        low = mid + 1;
+      } else if (midChar > letter) {
+        high = mid - 1;
+      } else {
+        return mid;
+      }
+    }
+    return -1;
+  }
+
+  //assigns every trie node to a state, giving identical subtrees the same
+  //state.
+  private static final class Minimizer {
+    private HashMap<Signature, Integer> registry = new HashMap<>();
+    private List<Boolean> stateTerminal = new ArrayList<>();
+    private List<Integer> stateWords = new ArrayList<>();
+    private List<char[]> stateChars = new ArrayList<>();
+    private List<int[]> stateTargets = new ArrayList<>();
+
+    //returns the state for node, creating it if no identical one exists
+    int canonical(TrieNode node) {
+      int numChildren = node.getNumChildren();
+      char[] chars = new char[numChildren];
+      int[] targets = new int[numChildren];
+      boolean isWord = node.getCount() > 0;
+      int words = isWord ? 1 : 0;
+      for (int i = 0; i < numChildren; i++) {
+        TrieNode child = node.getChildAt(i);
+        chars[i] = child.getValue();
+        targets[i] = canonical(child);
+        words += stateWords.get(targets[i]);
+      }
+
+      Signature signature = new Signature(isWord, chars, targets);
+      Integer state = registry.get(signature);
+      if (state == null) {
+        state = stateTerminal.size();
+        registry.put(signature, state);
+        stateTerminal.add(isWord);
+        stateWords.add(words);
+        stateChars.add(chars);
+        stateTargets.add(targets);
+      }
+      return state;
+    }
+  }
+
+  //what makes two states identical: whether they end a word and their
+  //labelled edges to other states.
+  private static final class Signature {
+    private final boolean isWord;
+    private final char[] chars;
+    private final int[] targets;
+    private final int hash;
+
+    Signature(boolean isWord, char[] chars, int[] targets) {
+      this.isWord = isWord;
+      this.chars = chars;
+      this.targets = targets;
+      this.hash = 31 * (31 * Boolean.hashCode(isWord) + Arrays.hashCode(chars))
+                  + Arrays.hashCode(targets);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (obj == this) {
+        return true;
+      }
+
+      if (!(obj instanceof Signature)) {
+        return false;
+      }
+
+      Signature aSignature = (Signature) obj;
+      return isWord == aSignature.isWord
+             && Arrays.equals(chars, aSignature.chars)
+             && Arrays.equals(targets, aSignature.targets);
+    }
+  }
+}
@@ -0,0 +1,214 @@
+package portfolio;
+
+import java.util.List;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+/**
+ * Represents a trie a.k.a a prefix tree of strings that many threads can
+ * search and add words to at the same time.
+ * <p> No locks are taken. A node's children are an immutable sorted array
+ * that is replaced with a compare and set when a child is added, so readers
+ * always see a consistent set of children, and counts are incremented with a
+ * compare and set as well. A word is found by readers once its count has
+ * been incremented, so a word that is half way through being added is not
+ * seen.
+ *
+ * @author Zachary Hoffman
+ */
+public final class ConcurrentTrie {
+  private final Node root;
+
+  /**
+   * Initializes an empty trie.
+   */
+  public ConcurrentTrie() {
+    root = new Node('\0');
+  }
+
+  /**
+   * Initializes the trie with a list of words to fill it with.
+   * @param words The words to fill the trie with.
+   */
+  public ConcurrentTrie(List<String> words) {
+    this();
+    addToTrie(words);
+  }
+
+  /**
+   * Adds all words in the given list to the tree. Safe to call while other
+   * threads are adding or searching.
+   * @param words A list of words to add to the tree.
+   */
+  public void addToTrie(List<String> words) {
+    for (String word : words) {
+      add(word);
+    }
+  }
+
+  /**
+   * Adds one occurence of a word to the tree. Safe to call while other
+   * threads are adding or searching.
+   * @param word The word to add.
+   * @return The word's count after adding it.
+   */
+  public int add(String word) {
+    Node node = root;
+    for (int i = 0; i < word.length(); i++) {
+      node = node.getOrAddChild(word.charAt(i));
+    }
+    return node.incrementCount();
+  }
+
+  /**
+   * Returns how many times a word has been added to the trie.
+   * @param word The word to look for.
+   * @return The word's count, or 0 if it is not in the trie.
+   */
+  public int getCount(String word) {
+    Node node = find(word);
+    if (node == null) {
+      return 0;
+    } else {
+      return node.count;
+    }
+  }
+
+  /**
+   * Checks whether a word is in the trie.
+   * @param word The word to look for.
+   * @return True if the word has been added to the trie.
+   */
+  public boolean contains(String word) {
+    return getCount(word) > 0;
+  }
+
+  /**
+   * Finds all words that begin with the given word. Words added while the
+   * search is running may or may not be included.
+   * @param prefix Word to search with.
+   * @return A list of words that begin with prefix, in alphabetical order.
+   */
+  public List<String> potentialWords(String prefix) {
+    List<String> words = new ArrayList<>();
+    Node node = find(prefix);
+    if (node != null) {
+      toList(node, words, new StringBuilder(prefix));
+    }
+    return words;
+  }
+
+  //returns the node that represents the final letter of prefix, or null if
+  //no word in the trie starts with prefix.
+  private Node find(String prefix) {
+    Node node = root;
+    for (int i = 0; i < prefix.length() && node != null; i++) {
+      node = node.getChild(prefix.charAt(i));
+    }
+    return node;
+  }
+
+  //adds all words that start with prefix and are children of node to the
+  //list of words.
+  private void toList(Node node, List<String> words, StringBuilder prefix) {
+    if (node.count > 0) {
+      words.add(prefix.toString());
+    }
+
+    //work from one snapshot of the children so they can't change under us
+    Children children = node.children;
+    for (int i = 0; i < children.keys.length; i++) {
+      prefix.append(children.keys[i]);
+      toList(children.nodes[i], words, prefix);
+      prefix.setLength(prefix.length() - 1);
+    }
+  }
+
+  //an immutable sorted set of children, replaced as a whole when one is
+  //added.
+  private static final class Children {
+    private static final Children EMPTY =
+        new Children(new char[0], new Node[0]);
+
+    private final char[] keys;
+    private final Node[] nodes;
+
+    Children(char[] keys, Node[] nodes) {
+      this.keys = keys;
+      this.nodes = nodes;
+    }
+  }
+
+  private static final class Node {
+    private static final AtomicReferenceFieldUpdater<Node, Children>
+        CHILDREN = AtomicReferenceFieldUpdater.newUpdater(
+            Node.class, Children.class, "children");
+    private static final AtomicIntegerFieldUpdater<Node> COUNT =
+        AtomicIntegerFieldUpdater.newUpdater(Node.class, "count");
+
+    private final char value;
+    private volatile Children children;
+    private volatile int count;
+
+    Node(char value) {
+      this.value = value;
+      this.children = Children.EMPTY;
+      this.count = 0;
+    }
+
+    //returns the child holding key, or null if there is none
+    Node getChild(char key) {
+      Children current = children;
+      int index = Arrays.binarySearch(current.keys, key);
+      if (index >= 0) {
+        return current.nodes[index];
+      } else {
+        return null;
+      }
+    }
+
+    //returns the child holding key, adding it if there is none. If two
+    //threads add the same key at once only one child wins and both get it.
+    Node getOrAddChild(char key) {
+      Node child = null;
+      while (true) {
+        Children current = children;
+        int index = Arrays.binarySearch(current.keys, key);
+        if (index >= 0) {
+          return current.nodes[index];
+        }
+
+        if (child == null) {
+          child = new Node(key);
+        }
+        int insertAt = -(index + 1);
+        int length = current.keys.length;
+        char[] keys = new char[length + 1];
+        Node[] nodes = new Node[length + 1];
+        System.arraycopy(current.keys, 0, keys, 0, insertAt);
+        System.arraycopy(current.nodes, 0, nodes, 0, insertAt);
+        keys[insertAt] = key;
+        nodes[insertAt] = child;
+        System.arraycopy(current.keys, insertAt, keys, insertAt + 1,
+                         length - insertAt);
+        System.arraycopy(current.nodes, insertAt, nodes, insertAt + 1,
+                         length - insertAt);
+
+        if (CHILDREN.compareAndSet(this, current, new Children(keys, nodes))) {
+          return child;
+        }
+      }
+    }
+
+    int incrementCount() {
+      return COUNT.incrementAndGet(this);
+    }
+
+    @Override
+    public String toString() {
+      return String.valueOf(value);
+    }
+  }
+}
@@ -2,8 +2,21 @@ package portfolio;
 
 import java.util.List;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 
 /**
  * Represents a trie a.k.a a prefix tree of strings.
@@ -11,114 +24,642 @@ import java.util.Arrays;
  * @author Zachary Hoffman
  */
 public class Trie {
+  /** The number of most frequent words each node caches by default. */
+  public static final int DEFAULT_CACHE_SIZE = 10;
+
   private TrieNode root;
   private HashMap<String, Integer> wordHash;
+  private int cacheSize;
 
   /**
    * Initializes the trie with a list of words to fill it with.
    * @param words The words to fill the trie with.
    */
   public Trie(List<String> words) {
-    wordHash = new HashMap<String, Integer>();
-    root = new TrieNode(null, new ArrayList<>(), "");
+    this(words, DEFAULT_CACHE_SIZE);
+  }
+
+  /**
+   * Initializes the trie with a list of words to fill it with, caching up to
+   * cacheSize of the most frequent words on every node for topK. Each node's
+   * cache costs a String reference and an int per cached word, about 8
+   * bytes each with compressed references, and usually points at the same
+   * Strings as the word hash. With the default cache size that is several
+   * times what the rest of a node takes, so a cacheSize of 0, which caches
+   * nothing and makes topK rank every word, suits tries short on memory.
+   * @param words The words to fill the trie with.
+   * @param cacheSize How many words each node caches, 0 to disable caching.
+   */
+  public Trie(List<String> words, int cacheSize) {
+    if (cacheSize < 0) {
+      throw new IllegalArgumentException("cacheSize must not be negative");
+    }
+    this.wordHash = new HashMap<String, Integer>();
+    this.root = new TrieNode(null, '\0');
+    this.cacheSize = cacheSize;
     addToTrie(words);
   }
 
   /**
-   * Adds all words in the given list to the tree.
-   * @param words A list of words to add to the tree.
+   * Builds a trie from a file holding one word per line. The words are
+   * streamed from the file, so they never all need to be in memory at once.
+   * @param path The file to read.
+   * @return A trie holding every line of the file.
+   * @throws IOException If the file cannot be read.
    */
-  public void addToTrie(List<String> words) {
+  public static Trie fromFile(Path path) throws IOException {
+    Trie trie = new Trie(Collections.<String>emptyList());
+    try (Stream<String> lines = Files.lines(path)) {
+      trie.addToTrie(lines.iterator());
+    }
+    return trie;
+  }
+
+  /**
+   * Builds a trie from a list of words in parallel, caching the default
+   * number of words on every node.
+   * @param words The words to fill the trie with.
+   * @return A trie holding every word in the list.
+   * @see parallelBuild(List, int)
+   */
+  public static Trie parallelBuild(List<String> words) {
+    return parallelBuild(words, DEFAULT_CACHE_SIZE);
+  }
+
+  /**
+   * Builds a trie from a list of words, splitting them by first letter and
+   * building the subtree of each letter in parallel on the fork/join pool
+   * before joining them under one root.
+   * @param words The words to fill the trie with.
+   * @param cacheSize How many words each node caches, 0 to disable caching.
+   * @return A trie holding every word in the list.
+   */
+  public static Trie parallelBuild(List<String> words, int cacheSize) {
+    //group the words by their first letter, keeping empty words apart
+    Trie trie = new Trie(Collections.<String>emptyList(), cacheSize);
+    HashMap<Character, List<String>> groups = new HashMap<>();
+    List<String> emptyWords = new ArrayList<>();
     for (String word : words) {
-      //add the word to the map
-      if (wordHash.containsKey(word)) {
-        wordHash.put(word, wordHash.get(word) + 1);
+      if (word.isEmpty()) {
+        emptyWords.add(word);
       } else {
-        wordHash.put(word, 1);
+        groups.computeIfAbsent(word.charAt(0), letter -> new ArrayList<>())
+            .add(word);
       }
+    }
+
+    //build each group's trie on its own
+    List<Trie> subtries = groups.values().parallelStream()
+        .map(group -> new Trie(group, cacheSize))
+        .collect(Collectors.toList());
 
-      //then add it to the tree
-      add(word, root);
+    //then move each group's only subtree under the new root
+    for (Trie subtrie : subtries) {
+      TrieNode subtree = subtrie.root.getChildAt(0);
+      subtree.setParent(trie.root);
+      trie.root.addChild(subtree);
+      trie.root.recordSubtree(subtree);
+      trie.wordHash.putAll(subtrie.wordHash);
+      for (int i = 0; i < subtrie.root.getNumTopWords(); i++) {
+        trie.root.offerTopWord(subtrie.root.getTopWord(i),
+                               subtrie.root.getTopCount(i), cacheSize);
+      }
     }
+    trie.addToTrie(emptyWords);
+    return trie;
+  }
+
+  /**
+   * Adds all words in the given list to the tree.
+   * @param words A list of words to add to the tree.
+   */
+  public void addToTrie(List<String> words) {
+    addToTrie(words.iterator());
   }
 
-  //recursivly adds a word to the prefix tree.
-  private void add(String word, TrieNode node) {
-    //make sure to not add empty strings
-    if (!word.equals("")) {
-      //otherwise grab the first letter and search the nodes children to
-      //see if one matches it
-      String firstLetter =  word.substring(0, 1);
-      String restOfWord = word.substring(1);
-      for (TrieNode child : node.getChildren()) {
-        //if we find a matching child add it and recur down that child.
-        if (child.getValue().equals(firstLetter)) {
-          add(restOfWord, child);
-          return; //end the function because we finished adding!
+  /**
+   * Adds all words from an iterator to the tree, one at a time. Each word
+   * starts from where it shares a prefix with the word before it, so sorted
+   * input is added in one pass without searching for the shared letters
+   * again.
+   * @param words The words to add to the tree.
+   */
+  public void addToTrie(Iterator<String> words) {
+    //the nodes for each letter of the previous word
+    TrieNode[] path = new TrieNode[16];
+    path[0] = root;
+    String previous = "";
+
+    while (words.hasNext()) {
+      String word = words.next();
+      if (word.length() >= path.length) {
+        path = Arrays.copyOf(path, Math.max(path.length * 2,
+                                            word.length() + 1));
+      }
+
+      //skip past the letters the word shares with the previous one
+      int shared = 0;
+      int maxShared = Math.min(word.length(), previous.length());
+      while (shared < maxShared
+             && word.charAt(shared) == previous.charAt(shared)) {
+        shared++;
+      }
+
+      //then add the rest of it one letter at a time
+      TrieNode node = path[shared];
+      for (int i = shared; i < word.length(); i++) {
+        //search the node's children to see if one matches the letter
+        char letter = word.charAt(i);
+        TrieNode child = node.getChild(letter);
+
+        //if the letter is not found in children, add it
+        if (child == null) {
+          child = node.addChild(new TrieNode(node, letter));
         }
+        node = child;
+        path[i + 1] = node;
       }
+      record(word, node);
+      previous = word;
+    }
+  }
 
-      //if first letter not found in children, add it and recur down tree.
-      add(restOfWord,
-          node.addChild(new TrieNode(node, new ArrayList<>(), firstLetter)));
+  //counts one more occurence of word, which ends at node end.
+  private void record(String word, TrieNode end) {
+    //add the word to the map
+    if (wordHash.containsKey(word)) {
+      wordHash.put(word, wordHash.get(word) + 1);
+    } else {
+      wordHash.put(word, 1);
+    }
+    int count = end.incrementCount();
+
+    //and let every node on its path know the word became more frequent
+    for (TrieNode node = end; node != null; node = node.getParent()) {
+      node.recordWord(count == 1);
+      if (cacheSize > 0) {
+        node.offerTopWord(word, count, cacheSize);
+      }
     }
   }
 
   /**
    * Finds all words that begin with the given word.
    * @param prefix Word to search with.
-   * @return A list of words that begin with prefix.
+   * @return A list of words that begin with prefix, in alphabetical order.
    */
   public List<String> potentialWords(String prefix) {
-    String[] prefixArray = prefix.split("");
-    List<String> mutablePrefixList =
-        new ArrayList<>(Arrays.asList(prefixArray));
+    List<String> words = new ArrayList<>();
+    TrieNode node = find(prefix);
+    if (node != null) {
+      toList(node, words, new StringBuilder(prefix));
+    }
+    return words;
+  }
+
+  /**
+   * Lazily finds all words that begin with the given word. Words are only
+   * built as they are consumed, so reading the first few costs nothing for
+   * the rest of the subtree. The trie must not be changed while the iterator
+   * is in use.
+   * @param prefix Word to search with.
+   * @return An iterator over the words that begin with prefix, in
+   * alphabetical order.
+   */
+  public Iterator<String> potentialWordsIterator(String prefix) {
+    return new WordIterator(prefix, null);
+  }
 
-    if (!prefix.equals("")) {
-      return potentialWordsHelper(mutablePrefixList, root, prefix);
+  /**
+   * Lazily finds all words that begin with the given word as a stream.
+   * @param prefix Word to search with.
+   * @return A sequential stream of the words that begin with prefix, in
+   * alphabetical order.
+   * @see potentialWordsIterator
+   */
+  public Stream<String> potentialWordsStream(String prefix) {
+    int characteristics = Spliterator.ORDERED | Spliterator.SORTED
+        | Spliterator.DISTINCT | Spliterator.NONNULL;
+    return StreamSupport.stream(
+        Spliterators.spliteratorUnknownSize(
+            potentialWordsIterator(prefix), characteristics),
+        false);
+  }
+
+  /**
+   * Finds one page of the words that begin with the given word. The last
+   * word of a page is the resume token for the next one.
+   * @param prefix Word to search with.
+   * @param after Only words alphabetically after this one are returned, or
+   * null to start from the first word.
+   * @param limit The maximum number of words to return.
+   * @return Up to limit words that begin with prefix and come after after,
+   * in alphabetical order.
+   */
+  public List<String> potentialWords(String prefix, String after, int limit) {
+    List<String> words = new ArrayList<>();
+    Iterator<String> iterator = new WordIterator(prefix, after);
+    while (words.size() < limit && iterator.hasNext()) {
+      words.add(iterator.next());
+    }
+    return words;
+  }
+
+  /**
+   * Checks whether a word is in the trie, in time proportional to its length.
+   * @param word The word to look for.
+   * @return True if the word has been added to the trie.
+   */
+  public boolean contains(String word) {
+    return getCount(word) > 0;
+  }
+
+  /**
+   * Returns how many times a word has been added to the trie, in time
+   * proportional to its length.
+   * @param word The word to look for.
+   * @return The word's count, or 0 if it is not in the trie.
+   */
+  public int getCount(String word) {
+    TrieNode node = find(word);
+    if (node == null) {
+      return 0;
     } else {
-      return potentialWordsHelper(new ArrayList<>(), root, prefix);
+      return node.getCount();
     }
   }
 
-  private List<String> potentialWordsHelper(List<String> sList,
-                                            TrieNode node,
-                                            String prefix) {
-    //when sList is empty, that means we are at the node in the tree that
-    //represents the final letter of prefix.
-    if (sList.size() <= 0) {
-      List<String> words = new ArrayList<>();
-      toList(node, words, prefix);
-      return words;
+  /**
+   * Counts the distinct words that begin with the given word, in time
+   * proportional to its length.
+   * @param prefix Word to search with.
+   * @return The number of distinct words that begin with prefix.
+   */
+  public int countWithPrefix(String prefix) {
+    TrieNode node = find(prefix);
+    if (node == null) {
+      return 0;
     } else {
-      //otherwise recur through the tree to find the node or the final letter
-      //of the given prefix.
-      String firstLetter = sList.remove(0);
-      for (TrieNode child : node.getChildren()) {
-        if (child.getValue().equals(firstLetter)) {
-          return potentialWordsHelper(sList, child, prefix);
-        }
-      }
+      return node.getNumWords();
+    }
+  }
+
+  /**
+   * Sums the counts of the words that begin with the given word, in time
+   * proportional to its length.
+   * @param prefix Word to search with.
+   * @return How many times words beginning with prefix have been added.
+   */
+  public long totalFrequencyWithPrefix(String prefix) {
+    TrieNode node = find(prefix);
+    if (node == null) {
+      return 0;
+    } else {
+      return node.getTotalFrequency();
     }
+  }
 
-    //otherwise the are no suffixes so
-    return new ArrayList<>();
+  //returns the node that represents the final letter of prefix, or null if
+  //no word in the trie starts with prefix.
+  private TrieNode find(String prefix) {
+    TrieNode node = root;
+    for (int i = 0; i < prefix.length() && node != null; i++) {
+      node = node.getChild(prefix.charAt(i));
+    }
+    return node;
   }
 
   //adds all all words that start with prefix and are children of node
   // to the list of words.
   private void toList(TrieNode node,
                       List<String> words,
-                      String prefix) {
+                      StringBuilder prefix) {
     //first check if the current prefix is a word
-    if (wordHash.containsKey(prefix)) {
-      words.add(prefix);
+    if (node.getCount() > 0) {
+      words.add(prefix.toString());
+    }
+
+    //loop through children, reusing the same buffer for each of them
+    for (int i = 0; i < node.getNumChildren(); i++) {
+      TrieNode child = node.getChildAt(i);
+      prefix.append(child.getValue());
+      toList(child, words, prefix);
+      prefix.setLength(prefix.length() - 1);
+    }
+  }
+
+  /**
+   * Finds the k most frequent words that begin with the given word. When k
+   * is at most the cache size the answer is read straight from the cache of
+   * the prefix's node, so it does not depend on how many words share the
+   * prefix. A larger k is answered by a best-first search that visits
+   * subtrees in order of the best word in their cache and stops once k words
+   * are found, so it only touches the subtrees those words are in. With
+   * caching disabled every word under the prefix is ranked.
+   * @param prefix Word to search with.
+   * @param k The maximum number of words to return.
+   * @return Up to k words that begin with prefix, most frequent first and
+   * ties in alphabetical order.
+   */
+  public List<String> topK(String prefix, int k) {
+    List<String> words = new ArrayList<>();
+    TrieNode node = find(prefix);
+    if (node == null || k <= 0) {
+      return words;
+    }
+
+    if (k <= cacheSize) {
+      for (int i = 0; i < Math.min(k, node.getNumTopWords()); i++) {
+        words.add(node.getTopWord(i));
+      }
+      return words;
+    } else if (cacheSize > 0) {
+      return topKBestFirst(node, prefix, k);
+    }
+
+    //otherwise there are no caches, so rank the whole subtree keeping
+    //the k best words seen so far with the worst of them on top
+    PriorityQueue<String> best = new PriorityQueue<>(k + 1,
+        (String one, String two) -> {
+          int byCount = wordHash.get(one).compareTo(wordHash.get(two));
+          if (byCount != 0) {
+            return byCount;
+          }
+          return two.compareTo(one);
+        });
+    for (String word : potentialWords(prefix)) {
+      best.add(word);
+      if (best.size() > k) {
+        best.poll();
+      }
+    }
+    while (!best.isEmpty()) {
+      words.add(best.poll());
+    }
+    Collections.reverse(words);
+    return words;
+  }
+
+  //pops words and subtrees best first, a subtree ranking as its cache's best
+  //word, which ranks at or before every word in it. A popped subtree pushes
+  //its own word and its children, so words come out in order.
+  private List<String> topKBestFirst(TrieNode start, String prefix, int k) {
+    List<String> words = new ArrayList<>();
+    //a subtree with no words has no best word to rank it by
+    if (start.getNumTopWords() == 0) {
+      return words;
     }
+    PriorityQueue<Candidate> queue = new PriorityQueue<>(
+        (Candidate one, Candidate two) -> {
+          if (TrieNode.ranksBefore(one.word, one.count,
+                                   two.word, two.count)) {
+            return -1;
+          } else if (TrieNode.ranksBefore(two.word, two.count,
+                                          one.word, one.count)) {
+            return 1;
+          }
+          //a subtree goes before its own best word
+          return Boolean.compare(one.isWord, two.isWord);
+        });
+    queue.add(Candidate.subtree(start, prefix));
+    while (!queue.isEmpty() && words.size() < k) {
+      Candidate next = queue.poll();
+      if (next.isWord) {
+        words.add(next.word);
+        continue;
+      }
+      TrieNode node = next.node;
+      if (node.getCount() > 0) {
+        queue.add(new Candidate(node, true, next.prefix, node.getCount(),
+                                next.prefix));
+      }
+      for (int i = 0; i < node.getNumChildren(); i++) {
+        TrieNode child = node.getChildAt(i);
+        if (child.getNumTopWords() > 0) {
+          queue.add(Candidate.subtree(child,
+                                      next.prefix + child.getValue()));
+        }
+      }
+    }
+    return words;
+  }
 
-    //loop through children
-    for (TrieNode child : node.getChildren()) {
-      toList(child, words, prefix + child.getValue());
+  /**
+   * Finds all words that begin with something within maxEdits insertions,
+   * deletions or substitutions of the given word, so typos in the prefix
+   * are tolerated. Subtrees are skipped as soon as no word in them can be
+   * close enough.
+   * @param prefix Word to search with.
+   * @param maxEdits The most edits allowed between prefix and the start of a
+   * word.
+   * @return A list of words that nearly begin with prefix, in alphabetical
+   * order.
+   */
+  public List<String> fuzzyWords(String prefix, int maxEdits) {
+    List<String> words = new ArrayList<>();
+    if (maxEdits < 0) {
+      return words;
+    }
+
+    //the edit distances between every prefix of prefix and the empty string
+    int[] firstRow = new int[prefix.length() + 1];
+    for (int i = 0; i < firstRow.length; i++) {
+      firstRow[i] = i;
+    }
+    List<int[]> rows = new ArrayList<>();
+    rows.add(firstRow);
+    fuzzyWordsHelper(root, prefix, maxEdits, rows, new StringBuilder(),
+                     words);
+    return words;
+  }
+
+  //rows holds one row of the edit distance table per letter of word, the
+  //last being for node. Adds the matching words under node to words.
+  private void fuzzyWordsHelper(TrieNode node,
+                                String prefix,
+                                int maxEdits,
+                                List<int[]> rows,
+                                StringBuilder word,
+                                List<String> words) {
+    int depth = word.length();
+    int[] row = rows.get(depth);
+
+    //once the whole prefix is matched closely enough every word below counts
+    if (row[prefix.length()] <= maxEdits) {
+      toList(node, words, word);
+      return;
     }
+
+    //reuse the next row down for every child
+    if (rows.size() == depth + 1) {
+      rows.add(new int[row.length]);
+    }
+    int[] nextRow = rows.get(depth + 1);
+    for (int i = 0; i < node.getNumChildren(); i++) {
+      TrieNode child = node.getChildAt(i);
+      char letter = child.getValue();
+
+      nextRow[0] = row[0] + 1;
+      int best = nextRow[0];
+      for (int j = 1; j < row.length; j++) {
+        int substitute = row[j - 1];
+        if (prefix.charAt(j - 1) != letter) {
+          substitute++;
+        }
+        nextRow[j] = Math.min(substitute,
+                              Math.min(row[j] + 1, nextRow[j - 1] + 1));
+        best = Math.min(best, nextRow[j]);
+      }
+
+      //only go down the child if some alignment can still stay in budget
+      if (best <= maxEdits) {
+        word.append(letter);
+        fuzzyWordsHelper(child, prefix, maxEdits, rows, word, words);
+        word.setLength(depth);
+      }
+    }
+  }
+
+  //a word, or a subtree ranked as the best word in its cache, waiting in
+  //topK's best-first search
+  private static final class Candidate {
+    private final TrieNode node;
+    private final boolean isWord;
+    private final String word;
+    private final int count;
+    //the word the path to node spells
+    private final String prefix;
+
+    Candidate(TrieNode node, boolean isWord, String word, int count,
+              String prefix) {
+      this.node = node;
+      this.isWord = isWord;
+      this.word = word;
+      this.count = count;
+      this.prefix = prefix;
+    }
+
+    static Candidate subtree(TrieNode node, String prefix) {
+      return new Candidate(node, false, node.getTopWord(0),
+                           node.getTopCount(0), prefix);
+    }
+  }
+
+  //walks the subtree under a prefix depth first, keeping the current path on
+  //an explicit stack and the current word in a single reused buffer.
+  private final class WordIterator implements Iterator<String> {
+    private TrieNode[] path;
+    //the next child to visit for each node on the path
+    private int[] nextChild;
+    private int depth;
+    private StringBuilder buffer;
+    //whether the buffer holds a word that has not been returned yet, and
+    //whether that has been worked out since the last call to next
+    private boolean found;
+    private boolean ready;
+
+    WordIterator(String prefix, String after) {
+      path = new TrieNode[16];
+      nextChild = new int[16];
+      depth = -1;
+      buffer = new StringBuilder(prefix);
+
+      TrieNode start = find(prefix);
+      if (start == null) {
+        return;
+      }
+      path[0] = start;
+      nextChild[0] = 0;
+      depth = 0;
+
+      if (after == null || after.compareTo(prefix) < 0) {
+        //every word under prefix comes after after, so start at the top
+        found = start.getCount() > 0;
+        ready = found;
+      } else if (after.startsWith(prefix)) {
+        seek(after);
+      } else {
+        //every word under prefix comes before after
+        depth = -1;
+      }
+    }
+
+    //moves the stack to where after is or would be, skipping every
+    //child that sorts before it.
+    private void seek(String after) {
+      for (int i = buffer.length(); i < after.length(); i++) {
+        TrieNode node = path[depth];
+        char letter = after.charAt(i);
+        nextChild[depth] = node.getChildIndexAfter(letter);
+        TrieNode child = node.getChild(letter);
+        if (child == null) {
+          return;
+        }
+        push(child);
+      }
+    }
+
+    private void push(TrieNode child) {
+      depth++;
+      if (depth == path.length) {
+        path = Arrays.copyOf(path, depth * 2);
+        nextChild = Arrays.copyOf(nextChild, depth * 2);
+      }
+      path[depth] = child;
+      nextChild[depth] = 0;
+      buffer.append(child.getValue());
+    }
+
+    //moves the buffer to the next word, returning false if there is none
+    private boolean advance() {
+      while (depth >= 0) {
+        TrieNode node = path[depth];
+        int index = nextChild[depth];
+        if (index < node.getNumChildren()) {
+          nextChild[depth] = index + 1;
+          TrieNode child = node.getChildAt(index);
+          push(child);
+          if (child.getCount() > 0) {
+            return true;
+          }
+        } else {
+          //done with this node so go back up, leaving the prefix alone
+          depth--;
+          if (depth >= 0) {
+            buffer.setLength(buffer.length() - 1);
+          }
+        }
+      }
+      return false;
+    }
+
+    @Override
+    public boolean hasNext() {
+      if (!ready) {
+        found = advance();
+        ready = true;
+      }
+      return found;
+    }
+
+    @Override
+    public String next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      ready = false;
+      return buffer.toString();
+    }
+  }
+
+  /**
+   * Makes a read only copy of the trie that shares identical subtrees and
+   * merges chains of single letters, taking a fraction of the memory. Later
+   * changes to this trie are not reflected in the copy.
+   * @return A compact copy of the trie.
+   */
+  public CompactTrie freeze() {
+    return new CompactTrie(root);
   }
 
   /** Retrurns the hash of all the words this trie holds.
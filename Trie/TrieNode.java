@@ -2,29 +2,56 @@ package portfolio;
 
 import java.util.List;
 import java.util.ArrayList;
-
-import com.google.common.base.Objects;
+import java.util.Arrays;
 
 /**
  * Represents a trie a.k.a a prefix tree of strings.
+ * <p> Children are kept in a sorted array keyed by their character so that
+ * looking up a child is a binary search that allocates nothing.
  *
  * @author Zachary Hoffman
  */
 public class TrieNode {
+  private static final char[] NO_KEYS = new char[0];
+  private static final TrieNode[] NO_CHILDREN = new TrieNode[0];
+  private static final String[] NO_WORDS = new String[0];
+  private static final int[] NO_COUNTS = new int[0];
+
   private TrieNode parent;
-  private List<TrieNode> children;
-  private String value;
+  private char value;
+  //sorted child characters and the children they map to, only the first
+  //numChildren entries of each array are in use
+  private char[] keys;
+  private TrieNode[] children;
+  private int numChildren;
+  //how many times the word ending at this node has been added
+  private int count;
+  //the number of distinct words under this node and how many times they
+  //have been added in total, both including the node's own word
+  private int numWords;
+  private long totalFrequency;
+  //the most frequent words under this node, best first, only the first
+  //numTop entries of each array are in use
+  private String[] topWords;
+  private int[] topCounts;
+  private int numTop;
 
   /** Constructs a Trie.
    * @param parent The parent of the current trie in its tree.
-   * @param children A list of TrieNodes representing the Nodes in a
-   * Trie that this node is linked to.
-   * @param value A string represeting what this TrieNode holds.
+   * @param value The character this TrieNode holds.
    */
-  public TrieNode(TrieNode parent, List<TrieNode> children, String value) {
+  public TrieNode(TrieNode parent, char value) {
     this.parent = parent;
-    this.children = new ArrayList<>(children);
     this.value = value;
+    this.keys = NO_KEYS;
+    this.children = NO_CHILDREN;
+    this.numChildren = 0;
+    this.count = 0;
+    this.numWords = 0;
+    this.totalFrequency = 0;
+    this.topWords = NO_WORDS;
+    this.topCounts = NO_COUNTS;
+    this.numTop = 0;
   }
 
   /**
@@ -35,35 +62,246 @@ public class TrieNode {
     return parent;
   }
 
+  //moves the node under a new parent, used when joining separately built
+  //subtrees
+  void setParent(TrieNode parent) {
+    this.parent = parent;
+  }
+
   /**
-    * Returns a list of the node's children.
+    * Returns a list of the node's children in ascending order of value.
     * @return A list containing chilren of the node the method is called on.
     */
   public List<TrieNode> getChildren() {
-    return new ArrayList<>(children);
+    return new ArrayList<>(Arrays.asList(children).subList(0, numChildren));
+  }
+
+  /**
+    * Returns the child holding the given character.
+    * @param key The character to look for.
+    * @return The matching child, or null if there is none.
+    */
+  public TrieNode getChild(char key) {
+    int index = Arrays.binarySearch(keys, 0, numChildren, key);
+    if (index >= 0) {
+      return children[index];
+    } else {
+      return null;
+    }
+  }
+
+  /**
+    * Returns the child at the given position in ascending order of value.
+    * @param index The position of the child, from 0 to getNumChildren() - 1.
+    * @return The child at that position.
+    */
+  public TrieNode getChildAt(int index) {
+    return children[index];
+  }
+
+  /**
+    * Returns the position of the first child whose value is greater than the
+    * given character.
+    * @param key The character to compare with.
+    * @return The number of children whose value is at most key.
+    */
+  public int getChildIndexAfter(char key) {
+    int index = Arrays.binarySearch(keys, 0, numChildren, key);
+    if (index >= 0) {
+      return index + 1;
+    } else {
+      return -(index + 1);
+    }
+  }
+
+  /**
+    * Returns the number of children the node has.
+    * @return The number of children the node has.
+    */
+  public int getNumChildren() {
+    return numChildren;
   }
 
   /**
     * Returns the node's value.
     * @return The value of the node the method is called on.
     */
-  public String getValue() {
+  public char getValue() {
     return value;
   }
 
   /**
-    * Adds a TrieNode of the same type to the current TrieNode's child list.
+    * Adds a TrieNode of the same type to the current TrieNode's children.
+    * If a child with the same value already exists it is replaced.
     * @param child The node to add.
     * @return The added node.
     */
   public TrieNode addChild(TrieNode child) {
-    children.add(child);
+    int index = Arrays.binarySearch(keys, 0, numChildren, child.getValue());
+    if (index >= 0) {
+      children[index] = child;
+      return child;
+    }
+
+    //grow the arrays when full
+    if (numChildren == keys.length) {
+      int capacity = Math.max(2, keys.length * 2);
+      keys = Arrays.copyOf(keys, capacity);
+      children = Arrays.copyOf(children, capacity);
+    }
+
+    //shift larger children over to keep the arrays sorted
+    int insertAt = -(index + 1);
+    System.arraycopy(keys, insertAt, keys, insertAt + 1,
+                     numChildren - insertAt);
+    System.arraycopy(children, insertAt, children, insertAt + 1,
+                     numChildren - insertAt);
+    keys[insertAt] = child.getValue();
+    children[insertAt] = child;
+    numChildren++;
     return child;
   }
 
+  /**
+    * Returns how many times the word ending at this node has been added.
+    * @return The word's count, or 0 if no word ends at this node.
+    */
+  public int getCount() {
+    return count;
+  }
+
+  //records one more occurence of the word ending at this node
+  int incrementCount() {
+    return ++count;
+  }
+
+  /**
+    * Returns the number of distinct words under this node, including the
+    * word ending at it.
+    * @return The number of distinct words under this node.
+    */
+  public int getNumWords() {
+    return numWords;
+  }
+
+  /**
+    * Returns how many times the words under this node have been added in
+    * total, including the word ending at it.
+    * @return The sum of the counts of the words under this node.
+    */
+  public long getTotalFrequency() {
+    return totalFrequency;
+  }
+
+  //records one more occurence of a word under this node, isNew being true
+  //if it is the first occurence of that word
+  void recordWord(boolean isNew) {
+    if (isNew) {
+      numWords++;
+    }
+    totalFrequency++;
+  }
+
+  //records every word of a subtree joined under this node
+  void recordSubtree(TrieNode subtree) {
+    numWords += subtree.numWords;
+    totalFrequency += subtree.totalFrequency;
+  }
+
+  /**
+    * Returns the number of words cached as the most frequent under this node.
+    * @return The number of cached words.
+    */
+  public int getNumTopWords() {
+    return numTop;
+  }
+
+  /**
+    * Returns a cached word, the most frequent word under this node being at
+    * position 0.
+    * @param index The position of the word, from 0 to getNumTopWords() - 1.
+    * @return The word at that position.
+    */
+  public String getTopWord(int index) {
+    return topWords[index];
+  }
+
+  /**
+    * Returns the count of a cached word.
+    * @param index The position of the word, from 0 to getNumTopWords() - 1.
+    * @return The count of the word at that position.
+    */
+  public int getTopCount(int index) {
+    return topCounts[index];
+  }
+
+  //updates the cache of most frequent words after word's count has grown to
+  //wordCount. As counts only ever grow the cache stays exact: word either
+  //moves up within it or takes the place of the worst cached word.
+  void offerTopWord(String word, int wordCount, int capacity) {
+    int index = -1;
+    for (int i = 0; i < numTop; i++) {
+      if (topWords[i].equals(word)) {
+        index = i;
+        break;
+      }
+    }
+
+    if (index < 0) {
+      if (numTop < capacity) {
+        //grow the arrays when full
+        if (numTop == topWords.length) {
+          int newLength = Math.min(capacity, Math.max(2, numTop * 2));
+          topWords = Arrays.copyOf(topWords, newLength);
+          topCounts = Arrays.copyOf(topCounts, newLength);
+        }
+        index = numTop;
+        numTop++;
+      } else if (numTop > 0 && ranksBefore(word, wordCount,
+                                           topWords[numTop - 1],
+                                           topCounts[numTop - 1])) {
+        index = numTop - 1;
+      } else {
+        return;
+      }
+    }
+    topWords[index] = word;
+    topCounts[index] = wordCount;
+
+    //move the word up until the cache is sorted again
+    while (index > 0 && ranksBefore(topWords[index], topCounts[index],
+                                    topWords[index - 1],
+                                    topCounts[index - 1])) {
+      String swapWord = topWords[index - 1];
+      int swapCount = topCounts[index - 1];
+      topWords[index - 1] = topWords[index];
+      topCounts[index - 1] = topCounts[index];
+      topWords[index] = swapWord;
+      topCounts[index] = swapCount;
+      index--;
+    }
+  }
+
+  /**
+    * Checks whether one word ranks before another by frequency, breaking ties
+    * alphabetically.
+    * @param word The first word.
+    * @param wordCount The first word's count.
+    * @param other The second word.
+    * @param otherCount The second word's count.
+    * @return True if word should be listed before other.
+    */
+  public static boolean ranksBefore(String word, int wordCount,
+                                    String other, int otherCount) {
+    if (wordCount != otherCount) {
+      return wordCount > otherCount;
+    }
+    return word.compareTo(other) < 0;
+  }
+
   @Override
   public int hashCode() {
-    return Objects.hashCode(value);
+    return Character.hashCode(value);
   }
 
   //how to check for equality
@@ -80,12 +318,12 @@ public class TrieNode {
     TrieNode aTrieNode = (TrieNode) obj;
 
     //Checks if value matches
-    return aTrieNode.getValue().equals(this.getValue());
+    return aTrieNode.getValue() == this.getValue();
   }
 
   //Return's a string describing the trie node's value
   @Override
   public String toString() {
-    return value;
+    return String.valueOf(value);
   }
 }